@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.ThreadingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the executor the waiting HTTP requests are dispatched on, so the
+ * servlet container threads are released while a request waits for its response.
+ */
+@Slf4j
+@Configuration
+public class AsyncRequestConfig implements WebMvcConfigurer {
+
+    /**
+     * Additional time the servlet container waits before it times out an async request,
+     * so that the adapter can answer with its own timeout response first.
+     */
+    protected static final long ASYNC_TIMEOUT_GRACE_MILLIS = 10_000;
+
+    @Autowired
+    private ThreadingConfig threadingConfig;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(requestExecutor());
+        configurer.setDefaultTimeout(TimeUnit.MINUTES.toMillis(HttpToMessagingAdapter.MESSAGE_RESPONSE_TIMEOUT) + ASYNC_TIMEOUT_GRACE_MILLIS);
+    }
+
+    /**
+     * The executor of the waiting requests. The platform thread pool queues up to
+     * {@link ThreadingConfig#getRequestQueueCapacity()} requests, the adapter answers
+     * further requests with {@code 503 Service Unavailable} before they reach the pool.
+     */
+    @Bean
+    public AsyncListenableTaskExecutor requestExecutor() {
+        if (threadingConfig.isVirtualThreads()) {
+            Optional<VirtualThreadTaskExecutor> virtualThreadExecutor = newVirtualThreadTaskExecutor();
+            if (virtualThreadExecutor.isPresent()) {
+                log.info("Waiting requests are dispatched on virtual threads");
+                return virtualThreadExecutor.get();
+            }
+            log.warn("Virtual threads are not supported by this JVM, falling back to a pool of {} platform threads", threadingConfig.getRequestPoolSize());
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threadingConfig.getRequestPoolSize());
+        executor.setMaxPoolSize(threadingConfig.getRequestPoolSize());
+        executor.setQueueCapacity(threadingConfig.getRequestQueueCapacity());
+        executor.setThreadNamePrefix("request-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * The factory method is looked up reflectively because the adapter is still compiled for Java 8.
+     *
+     * @return the executor or an empty optional if the running JVM has no virtual threads
+     */
+    public static Optional<VirtualThreadTaskExecutor> newVirtualThreadTaskExecutor() {
+        try {
+            return Optional.of(new VirtualThreadTaskExecutor((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A task executor on virtual threads that is shut down with the application context when it is a bean.
+     */
+    public static class VirtualThreadTaskExecutor extends ConcurrentTaskExecutor implements DisposableBean {
+
+        private final ExecutorService executorService;
+
+        private VirtualThreadTaskExecutor(ExecutorService executorService) {
+            super(executorService);
+            this.executorService = executorService;
+        }
+
+        @Override
+        public void destroy() {
+            executorService.shutdown();
+        }
+    }
+}
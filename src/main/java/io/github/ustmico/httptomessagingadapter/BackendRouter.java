@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.github.ustmico.httptomessagingadapter.config.BackendConfig;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects the backend a request is sent to. The backends are weighted and can be
+ * pinned by the value of a header. Everything that does not depend on the request
+ * is computed once at startup.
+ * <p>
+ * Pinned requests use weighted rendezvous hashing: each backend scores the key by its hash and its weight
+ * and the highest score wins. Adding or removing a backend only moves the keys that it wins or won,
+ * the other keys stay on their backend.
+ */
+@Slf4j
+@Component
+public class BackendRouter {
+
+    @Autowired
+    private BackendConfig backendConfig;
+
+    @Autowired
+    private KafkaConfig kafkaConfig;
+
+    /**
+     * Each backend appears as often as its weight, so a uniformly chosen slot selects it by weight.
+     */
+    private Backend[] slots;
+
+    /**
+     * The distinct backends with their weights and the seeds of their hashes for the pinned requests.
+     */
+    private Backend[] backends;
+    private int[] weights;
+    private long[] seeds;
+
+    @PostConstruct
+    public void init() {
+        List<Backend> weightedBackends = new ArrayList<>();
+        List<Backend> distinctBackends = new ArrayList<>();
+        List<Integer> distinctWeights = new ArrayList<>();
+        if (backendConfig.getTargets().isEmpty()) {
+            Backend backend = new Backend(backendConfig.getUrl(), backendConfig.getUrl(), kafkaConfig.getOutputTopic());
+            weightedBackends.add(backend);
+            distinctBackends.add(backend);
+            distinctWeights.add(1);
+        }
+        for (BackendConfig.Target target : backendConfig.getTargets()) {
+            String name = target.getName() != null ? target.getName() : target.getUrl();
+            if (target.getWeight() < 1) {
+                throw new IllegalStateException("The weight of the backend '" + name + "' must be at least 1, but is " + target.getWeight());
+            }
+            String topic = target.getTopic() != null ? target.getTopic() : kafkaConfig.getOutputTopic();
+            Backend backend = new Backend(name, target.getUrl(), topic);
+            log.info("Routing {} shares of the requests to the backend '{}' via the topic '{}'", target.getWeight(), name, topic);
+            for (int i = 0; i < target.getWeight(); i++) {
+                weightedBackends.add(backend);
+            }
+            distinctBackends.add(backend);
+            distinctWeights.add(target.getWeight());
+        }
+        slots = weightedBackends.toArray(new Backend[0]);
+        backends = distinctBackends.toArray(new Backend[0]);
+        weights = new int[backends.length];
+        seeds = new long[backends.length];
+        for (int i = 0; i < backends.length; i++) {
+            weights[i] = distinctWeights.get(i);
+            // The seed only depends on the name, so a backend keeps its keys when others are added or removed
+            seeds[i] = hash(backends[i].getName());
+        }
+    }
+
+    /**
+     * @return the distinct topics of the backends
+     */
+    public List<String> getTopics() {
+        List<String> topics = new ArrayList<>();
+        for (Backend backend : slots) {
+            if (!topics.contains(backend.getTopic())) {
+                topics.add(backend.getTopic());
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Selects the backend for a request.
+     *
+     * @param request
+     * @return the backend the request is sent to
+     */
+    public Backend route(HttpServletRequest request) {
+        if (slots.length == 1) {
+            return slots[0];
+        }
+        String stickyKey = StringUtils.hasText(backendConfig.getStickyHeader()) ? request.getHeader(backendConfig.getStickyHeader()) : null;
+        if (stickyKey == null) {
+            return slots[ThreadLocalRandom.current().nextInt(slots.length)];
+        }
+        long keyHash = hash(stickyKey);
+        Backend selected = null;
+        double highestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < backends.length; i++) {
+            // A uniform value in (0, 1) per key and backend, the score -weight / ln(u) picks each backend by its weight
+            double u = ((mix(keyHash ^ seeds[i]) >>> 11) + 0.5) / (1L << 53);
+            double score = -weights[i] / Math.log(u);
+            if (score > highestScore) {
+                highestScore = score;
+                selected = backends[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return the 64 bit FNV-1a hash of the value, mixed so all its bits depend on all characters
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The finalizer of MurmurHash3.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * A backend with its precomputed url prefix and url extension value.
+     */
+    @Getter
+    public static class Backend {
+
+        private final String name;
+
+        /**
+         * The backend url without a trailing slash.
+         */
+        private final String urlPrefix;
+
+        private final JsonNode urlNode;
+
+        private final String topic;
+
+        Backend(String name, String url, String topic) {
+            this.name = name;
+            this.urlPrefix = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+            this.urlNode = TextNode.valueOf(url);
+            this.topic = topic;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.CompressionConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses large HTTP bodies before they are put into a message
+ * and decompresses the bodies of response messages.
+ */
+@Component
+public class BodyCompressor {
+
+    public static final String ENCODING_GZIP = "gzip";
+
+    @Autowired
+    private CompressionConfig compressionConfig;
+
+    /**
+     * Checks if a body should be compressed.
+     *
+     * @param body            the body
+     * @param contentEncoding the content encoding of the HTTP request, {@code null} if there is none
+     * @return {@code true} if compression is enabled, the body is large enough and not already encoded
+     */
+    public boolean shouldCompress(byte[] body, String contentEncoding) {
+        return compressionConfig.isEnabled()
+            && body.length >= compressionConfig.getThreshold()
+            && (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding));
+    }
+
+    public byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Checks if a client accepts an encoding, an encoding with {@code q=0} is refused.
+     *
+     * @param acceptEncoding the values of the Accept-Encoding header, {@code null} if there is none
+     * @param encoding       the encoding of the body
+     * @return {@code true} if the encoding or {@code *} is listed with a quality above 0
+     */
+    public static boolean isAccepted(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double quality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            double q = getQuality(parameters);
+            if (name.equalsIgnoreCase(encoding)) {
+                quality = q;
+            } else if ("*".equals(name)) {
+                wildcardQuality = q;
+            }
+        }
+        // An encoding that is listed by its name is not covered by the wildcard
+        Double acceptedQuality = quality != null ? quality : wildcardQuality;
+        return acceptedQuality != null && acceptedQuality > 0;
+    }
+
+    /**
+     * @param parameters the coding and its parameters
+     * @return the value of the {@code q} parameter, 1 if there is none and 0 if it is invalid
+     */
+    private static double getQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.substring(1).trim().startsWith("=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(parameter.indexOf('=') + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Decompresses a body.
+     *
+     * @param body     the compressed body
+     * @param encoding the codec of the body
+     * @return the decompressed body
+     * @throws IOException if the codec is not supported or the body is not valid
+     */
+    public byte[] decompress(byte[] body, String encoding) throws IOException {
+        if (!ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            throw new IOException("Unsupported body encoding '" + encoding + "'");
+        }
+        try (InputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return StreamUtils.copyToByteArray(gzipInputStream);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.ConnectorConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.coyote.http11.Http11Nio2Protocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the {@link ConnectorConfig} to the connector of the embedded Tomcat.
+ */
+@Slf4j
+@Component
+public class ConnectorCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    @Autowired
+    private ConnectorConfig connectorConfig;
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (connectorConfig.isNio2()) {
+            log.info("Using the NIO2 connector");
+            factory.setProtocol(Http11Nio2Protocol.class.getName());
+        }
+        factory.addConnectorCustomizers(connector -> {
+            if (connectorConfig.isHttp2()) {
+                log.info("Accepting HTTP/2 cleartext connections");
+                connector.addUpgradeProtocol(new Http2Protocol());
+            }
+            ProtocolHandler handler = connector.getProtocolHandler();
+            if (handler instanceof AbstractHttp11Protocol) {
+                customizeProtocol((AbstractHttp11Protocol<?>) handler);
+            }
+        });
+    }
+
+    private void customizeProtocol(AbstractHttp11Protocol<?> protocol) {
+        if (connectorConfig.getKeepAliveTimeout() != null) {
+            protocol.setKeepAliveTimeout((int) connectorConfig.getKeepAliveTimeout().toMillis());
+        }
+        if (connectorConfig.getMaxKeepAliveRequests() != null) {
+            protocol.setMaxKeepAliveRequests(connectorConfig.getMaxKeepAliveRequests());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.ShutdownConfig;
+import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the pending requests on shutdown. New requests are rejected, and the adapter waits
+ * until the pending requests got their responses or the drain timeout passed before the
+ * Kafka listener is stopped. Finally the producer is flushed.
+ */
+@Slf4j
+@Component
+public class GracefulShutdown implements SmartLifecycle {
+
+    /**
+     * Stops before the Kafka listener containers, so the responses of the pending requests are still received.
+     */
+    protected static final int PHASE = Integer.MAX_VALUE;
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    @Autowired
+    private ShutdownConfig shutdownConfig;
+
+    @Autowired
+    private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    private volatile boolean running;
+
+    private volatile boolean draining;
+
+    /**
+     * Registers a new request.
+     *
+     * @return false if the adapter is shutting down and the request must be rejected
+     */
+    public boolean tryStartRequest() {
+        inFlightRequests.incrementAndGet();
+        if (draining) {
+            inFlightRequests.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deregisters a request that was started with {@link #tryStartRequest()}.
+     */
+    public void requestCompleted() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public void start() {
+        draining = false;
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        draining = true;
+        long deadline = System.currentTimeMillis() + shutdownConfig.getDrainTimeout().toMillis();
+        log.info("Draining {} pending requests", inFlightRequests.get());
+        try {
+            while (inFlightRequests.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inFlightRequests.get() > 0) {
+            log.warn("Stopping with {} pending requests after the drain timeout of {}", inFlightRequests.get(), shutdownConfig.getDrainTimeout());
+        } else {
+            log.info("Drained all pending requests");
+        }
+        kafkaTemplate.flush();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.HeaderFilterConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which headers are copied from the HTTP request into the message
+ * and from the response message into the HTTP response.
+ * The configured header names are compiled into sets once at startup.
+ */
+@Slf4j
+@Component
+public class HeaderFilter {
+
+    protected static final String METRIC_DROPPED_BYTES = "adapter.headers.dropped.bytes";
+    protected static final String METRIC_TAG_DIRECTION = "direction";
+
+    public enum Direction {
+        REQUEST, RESPONSE
+    }
+
+    @Autowired
+    private HeaderFilterConfig headerFilterConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Set<String> allowedHeaders;
+    private Set<String> deniedHeaders;
+    private int maxSize;
+    private boolean enabled;
+    private Counter droppedRequestBytes;
+    private Counter droppedResponseBytes;
+
+    @PostConstruct
+    public void init() {
+        allowedHeaders = normalize(headerFilterConfig.getAllow());
+        deniedHeaders = normalize(headerFilterConfig.getDeny());
+        maxSize = headerFilterConfig.getMaxSize();
+        enabled = !allowedHeaders.isEmpty() || !deniedHeaders.isEmpty() || maxSize > 0;
+        droppedRequestBytes = meterRegistry.counter(METRIC_DROPPED_BYTES, METRIC_TAG_DIRECTION, "request");
+        droppedResponseBytes = meterRegistry.counter(METRIC_DROPPED_BYTES, METRIC_TAG_DIRECTION, "response");
+        log.info("Header filter enabled: {}, allowed: {}, denied: {}, max size: {}", enabled, allowedHeaders, deniedHeaders, maxSize);
+    }
+
+    /**
+     * Checks if a header is copied and records the size of dropped headers.
+     *
+     * @param headerName the normalized header name
+     * @param values     the values of the header
+     * @param direction  the direction the header is copied in
+     * @return {@code true} if the header is copied
+     */
+    public boolean isAllowed(String headerName, List<String> values, Direction direction) {
+        if (!enabled) {
+            return true;
+        }
+        String name = HttpHeaderNames.normalize(headerName);
+        boolean allowed = (allowedHeaders.isEmpty() || allowedHeaders.contains(name)) && !deniedHeaders.contains(name);
+        if (allowed && maxSize == 0) {
+            return true;
+        }
+        int size = getSize(name, values);
+        if (allowed && size <= maxSize) {
+            return true;
+        }
+        log.debug("Dropping the {} header '{}' with a size of {}", direction, name, size);
+        (direction == Direction.REQUEST ? droppedRequestBytes : droppedResponseBytes).increment(size);
+        return false;
+    }
+
+    private static int getSize(String headerName, List<String> values) {
+        int size = headerName.length();
+        for (String value : values) {
+            size += value.length();
+        }
+        return size;
+    }
+
+    private static Set<String> normalize(List<String> headerNames) {
+        Set<String> normalizedNames = new HashSet<>();
+        for (String headerName : headerNames) {
+            normalizedNames.add(HttpHeaderNames.normalize(headerName.trim()));
+        }
+        return normalizedNames;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Static table of common HTTP header names, similar to the HPACK static table.
+ * Header names are case-insensitive, so they are normalized to lower case like in HTTP/2
+ * and common names are replaced by a shared instance.
+ */
+public final class HttpHeaderNames {
+
+    private static final String[] COMMON_HEADER_NAMES = {
+        "accept", "accept-charset", "accept-encoding", "accept-language", "accept-ranges",
+        "access-control-allow-origin", "age", "allow", "authorization", "cache-control",
+        "content-disposition", "content-encoding", "content-language", "content-length",
+        "content-location", "content-range", "content-type", "cookie", "date", "etag",
+        "expect", "expires", "from", "host", "if-match", "if-modified-since", "if-none-match",
+        "if-range", "if-unmodified-since", "last-modified", "link", "location", "max-forwards",
+        "proxy-authenticate", "proxy-authorization", "range", "referer", "refresh", "retry-after",
+        "server", "set-cookie", "strict-transport-security", "transfer-encoding", "user-agent",
+        "vary", "via", "www-authenticate", "connection", "keep-alive", "origin", "pragma",
+        "upgrade", "x-forwarded-for", "x-forwarded-host", "x-forwarded-proto", "x-request-id"
+    };
+
+    private static final Map<String, String> COMMON_HEADERS = new HashMap<>();
+
+    static {
+        for (String headerName : COMMON_HEADER_NAMES) {
+            COMMON_HEADERS.put(headerName, headerName);
+        }
+    }
+
+    private HttpHeaderNames() {
+    }
+
+    /**
+     * Returns the lower case name of the header, using the shared instance for common header names.
+     *
+     * @param headerName the header name as received
+     * @return the normalized header name
+     */
+    public static String normalize(String headerName) {
+        String lowerCaseName = headerName.toLowerCase(Locale.ROOT);
+        return COMMON_HEADERS.getOrDefault(lowerCaseName, lowerCaseName);
+    }
+}
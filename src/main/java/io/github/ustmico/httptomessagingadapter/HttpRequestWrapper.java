@@ -19,50 +19,68 @@
 
 package io.github.ustmico.httptomessagingadapter;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSetter;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 
 public class HttpRequestWrapper {
 
-    private String bodyBase64;
+    /**
+     * The HTTP body. It is written as Base64 string in JSON and as raw bytes in binary formats.
+     */
+    private byte[] body;
 
-    private Map<String, String> header;
+    /**
+     * The HTTP headers with all their values.
+     * Headers with a single value are written as a plain string instead of an array.
+     */
+    @JsonFormat(with = {JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY, JsonFormat.Feature.WRITE_SINGLE_ELEM_ARRAYS_UNWRAPPED})
+    private Map<String, List<String>> header;
 
     @JsonIgnore
     public String getBody() {
-        if (bodyBase64 == null) {
+        if (body == null) {
             return null;
         }
-        byte[] decodedBytes = Base64.getDecoder().decode(bodyBase64);
-        String decodedString = new String(decodedBytes, StandardCharsets.UTF_8);
-        return decodedString;
+        return new String(body, StandardCharsets.UTF_8);
     }
 
     @JsonIgnore
     public void setBody(String body) {
-        this.bodyBase64 = Base64.getEncoder().encodeToString(body.getBytes());
+        this.body = body.getBytes(StandardCharsets.UTF_8);
     }
 
     @JsonSetter("base64body")
-    public void setBodyBase64(String bodyBase64) {
-        this.bodyBase64 = bodyBase64;
+    public void setBodyBytes(byte[] body) {
+        this.body = body;
     }
 
     @JsonGetter("base64body")
+    public byte[] getBodyBytes() {
+        return body;
+    }
+
+    @JsonIgnore
+    public void setBodyBase64(String bodyBase64) {
+        this.body = bodyBase64 == null ? null : Base64.getDecoder().decode(bodyBase64);
+    }
+
+    @JsonIgnore
     public String getBodyBase64() {
-        return bodyBase64;
+        return body == null ? null : Base64.getEncoder().encodeToString(body);
     }
 
-    public Map<String, String> getHeader() {
+    public Map<String, List<String>> getHeader() {
         return header;
     }
 
-    public void setHeader(Map<String, String> header) {
+    public void setHeader(Map<String, List<String>> header) {
         this.header = header;
     }
 }
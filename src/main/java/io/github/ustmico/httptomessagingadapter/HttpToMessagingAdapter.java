@@ -21,34 +21,55 @@ package io.github.ustmico.httptomessagingadapter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.ustmico.httptomessagingadapter.config.BackendConfig;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.github.ustmico.httptomessagingadapter.config.JournalConfig;
 import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.github.ustmico.httptomessagingadapter.config.ScatterGatherConfig;
+import io.github.ustmico.httptomessagingadapter.config.ThreadingConfig;
+import io.github.ustmico.httptomessagingadapter.kafka.EventClock;
+import io.github.ustmico.httptomessagingadapter.kafka.IdGenerator;
 import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
-import io.github.ustmico.httptomessagingadapter.kafka.RouteHistory;
+import io.github.ustmico.httptomessagingadapter.kafka.RequestJournal;
+import io.github.ustmico.httptomessagingadapter.kafka.RouteHistoryRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.KafkaException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @RestController
@@ -66,11 +87,22 @@ public class HttpToMessagingAdapter {
     protected static final String CLOUD_EVENT_ATTRIBUTE_MESSAGE_TYPE = "httpEnvelop";
     protected static final String CLOUD_EVENT_ATTRIBUTE_CONTENT_TYPE = "application/json";
     protected static final String ROUTE_HISTORY_TYPE_TOPIC = "topic";
-
-    protected static JsonNode defaultValue = null;
-
-    public HttpToMessagingAdapter() {
-        defaultValue = mapper.valueToTree(DEFAULT_HTTP_RESPONSE_VALUE);
+    protected static final String CLOUD_EVENT_ATTRIBUTE_BODY_ENCODING = "adapterBodyEncoding";
+    protected static final String HEADER_REQUEST_TIMEOUT = "Request-Timeout";
+    protected static final String CLOUD_EVENT_ATTRIBUTE_CANCEL_MESSAGE_TYPE = "httpEnvelopCancel";
+    protected static final String METRIC_CANCELLED_REQUESTS = "adapter.requests.cancelled";
+    protected static final String CLOUD_EVENT_ATTRIBUTE_SCATTER_ID = "adapterScatterId";
+    protected static final String METRIC_REQUEST_SPANS = "adapter.request.span";
+    protected static final String METRIC_DROPPED_REQUESTS = "adapter.requests.dropped";
+
+    protected static final JsonNode defaultValue = TextNode.valueOf(DEFAULT_HTTP_RESPONSE_VALUE);
+    protected static final URI SOURCE_HTTP_TO_MESSAGING_ADAPTER = URI.create(CLOUD_EVENT_ATTRIBUTE_SOURCE_HTTP_TO_MESSAGING_ADAPTER);
+    protected static final Map<String, JsonNode> REQUEST_METHOD_NODES = new HashMap<>();
+
+    static {
+        for (RequestMethod requestMethod : RequestMethod.values()) {
+            REQUEST_METHOD_NODES.put(requestMethod.name(), TextNode.valueOf(requestMethod.name()));
+        }
     }
 
     @Autowired
@@ -83,34 +115,184 @@ public class HttpToMessagingAdapter {
     OpenRequestHandler openRequestHandler;
 
     @Autowired
-    BackendConfig backendConfig;
+    BackendRouter backendRouter;
+
+    @Autowired
+    IdGenerator idGenerator;
+
+    @Autowired
+    HeaderFilter headerFilter;
+
+    @Autowired
+    BodyCompressor bodyCompressor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ScatterGatherConfig scatterGatherConfig;
+
+    @Autowired
+    RouteHistoryRecorder routeHistoryRecorder;
+
+    @Autowired
+    TenantRateLimiter tenantRateLimiter;
+
+    @Autowired
+    GracefulShutdown gracefulShutdown;
+
+    @Autowired
+    JournalConfig journalConfig;
+
+    @Autowired
+    RequestJournal requestJournal;
+
+    @Autowired
+    @Qualifier("fireAndForgetTemplate")
+    private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> fireAndForgetTemplate;
+
+    @Autowired
+    ThreadingConfig threadingConfig;
+
+    @Autowired
+    @Qualifier("requestExecutor")
+    AsyncListenableTaskExecutor requestExecutor;
+
+    /**
+     * The free threads and queue places of the platform request executor, so requests beyond them are
+     * answered with 503 before they are dispatched. Null if the requests run on virtual threads.
+     */
+    private Semaphore requestExecutorSlots;
+
+    private AntPathMatcher pathMatcher = new AntPathMatcher();
 
     private ObjectMapper mapper = new ObjectMapper();
 
+    private Timer buildSpan;
+    private Timer publishSpan;
+    private Timer waitSpan;
+
+    @PostConstruct
+    public void init() {
+        buildSpan = meterRegistry.timer(METRIC_REQUEST_SPANS, "span", "build");
+        publishSpan = meterRegistry.timer(METRIC_REQUEST_SPANS, "span", "publish");
+        waitSpan = meterRegistry.timer(METRIC_REQUEST_SPANS, "span", "wait");
+        if (requestExecutor instanceof ThreadPoolTaskExecutor) {
+            requestExecutorSlots = new Semaphore(threadingConfig.getRequestPoolSize() + threadingConfig.getRequestQueueCapacity());
+        }
+    }
 
     @RequestMapping(value = "/**", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS, RequestMethod.HEAD})
-    public ResponseEntity getRequest(HttpServletRequest request) throws URISyntaxException, InterruptedException, ExecutionException {
-        String uriWithQueryString = getUriWithQueryString(request);
-        log.info("Request to {}, with the method {}, url {}", request.getRequestURI(), request.getMethod(), uriWithQueryString);
+    public WebAsyncTask<ResponseEntity> getRequest(HttpServletRequest request) {
+        if (!gracefulShutdown.tryStartRequest()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The adapter is shutting down");
+        }
+        String tenant = tenantRateLimiter.getTenant(request);
+        TenantRateLimiter.Decision decision = tenantRateLimiter.tryAcquire(tenant);
+        if (decision != TenantRateLimiter.Decision.ACCEPTED) {
+            gracefulShutdown.requestCompleted();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many requests of the tenant '" + tenant + "': " + decision);
+        }
+        if (requestExecutorSlots != null && !requestExecutorSlots.tryAcquire()) {
+            tenantRateLimiter.release(tenant);
+            gracefulShutdown.requestCompleted();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many waiting requests");
+        }
+        long timeoutMillis;
+        BackendRouter.Backend backend;
         try {
-            MicoCloudEventImpl<JsonNode> micoCloudEvent = getMicoCloudEventFromHttpRequest(request, uriWithQueryString);
+            timeoutMillis = getResponseTimeoutMillis(request);
+            backend = backendRouter.route(request);
+        } catch (RuntimeException e) {
+            // The completion callback isn't registered yet, so the request is released here
+            releaseRequestExecutorSlot();
+            tenantRateLimiter.release(tenant);
+            gracefulShutdown.requestCompleted();
+            throw e;
+        }
+        CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture = new CompletableFuture<>();
+        AtomicReference<MicoCloudEventImpl<JsonNode>> sentEvent = new AtomicReference<>();
+
+        WebAsyncTask<ResponseEntity> asyncTask = new WebAsyncTask<>(timeoutMillis + AsyncRequestConfig.ASYNC_TIMEOUT_GRACE_MILLIS,
+            () -> handleRequest(request, backend, timeoutMillis, openRequestFuture, sentEvent));
+        asyncTask.onTimeout(() -> {
+            cancelRequest(openRequestFuture, sentEvent.get(), backend, "timeout");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        });
+        asyncTask.onError(() -> {
+            cancelRequest(openRequestFuture, sentEvent.get(), backend, "error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        });
+        // The handler finishes the future in all its paths, so it is only cancelled here
+        // if the client disconnected while the handler was still running
+        asyncTask.onCompletion(() -> {
+            cancelRequest(openRequestFuture, sentEvent.get(), backend, "disconnect");
+            releaseRequestExecutorSlot();
+            tenantRateLimiter.release(tenant);
+            gracefulShutdown.requestCompleted();
+        });
+        return asyncTask;
+    }
 
-            log.info("Sending cloud Event '{}' to topic '{}'", micoCloudEvent, kafkaConfig.getOutputTopic());
-            kafkaTemplate.send(kafkaConfig.getOutputTopic(), micoCloudEvent);
-            CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture = new CompletableFuture<>();
+    /**
+     * Sends the request as a cloud event and waits for the response message.
+     * Runs on the request executor instead of a servlet container thread.
+     *
+     * @param request
+     * @param backend           the backend the request is sent to
+     * @param timeoutMillis     the time to wait for the response
+     * @param openRequestFuture the future that is completed with the response or cancelled if the client is gone,
+     *                          it is always done when the handler returns
+     * @param sentEvent         is set to the cloud event before it is sent
+     * @return the response entity built from the response message
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private ResponseEntity handleRequest(HttpServletRequest request, BackendRouter.Backend backend, long timeoutMillis, CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture,
+                                         AtomicReference<MicoCloudEventImpl<JsonNode>> sentEvent) throws InterruptedException, ExecutionException {
+        String uriWithQueryString = getUriWithQueryString(request, backend);
+        log.info("Request to {}, with the method {}, url {}", request.getRequestURI(), request.getMethod(), uriWithQueryString);
+        try {
+            long buildStart = System.nanoTime();
+            MicoCloudEventImpl<JsonNode> micoCloudEvent = getMicoCloudEventFromHttpRequest(request, backend, uriWithQueryString, timeoutMillis);
+            TraceContext traceContext = setTraceContext(request, micoCloudEvent);
+            buildSpan.record(System.nanoTime() - buildStart, TimeUnit.NANOSECONDS);
+            if (isScatterGatherRequest(request)) {
+                return handleScatterGatherRequest(micoCloudEvent, request.getMethod(), uriWithQueryString, timeoutMillis, openRequestFuture);
+            }
+            if (isFireAndForgetRequest(request)) {
+                return handleFireAndForgetRequest(micoCloudEvent, backend.getTopic());
+            }
 
-            MicoCloudEventImpl<JsonNode> response = waitForResponseMessage(micoCloudEvent.getId(), openRequestFuture);
+            sentEvent.set(micoCloudEvent);
+            openRequestHandler.addRequest(micoCloudEvent.getId(), openRequestFuture, request.getMethod(), uriWithQueryString);
+            if (openRequestFuture.isCancelled()) {
+                openRequestHandler.deleteRequest(micoCloudEvent.getId());
+                log.info("The request '{}' was cancelled before it was sent", micoCloudEvent.getId());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            log.info("Sending cloud Event '{}' to topic '{}'", micoCloudEvent, backend.getTopic());
+            send(backend.getTopic(), micoCloudEvent);
+
+            long waitStart = System.nanoTime();
+            MicoCloudEventImpl<JsonNode> response;
+            try {
+                response = waitForResponseMessage(micoCloudEvent.getId(), openRequestFuture, timeoutMillis);
+            } finally {
+                waitSpan.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            }
             log.info("Got response for the message '{}' with the correlationId '{}'", micoCloudEvent.getId(), response.getCorrelationId());
 
             ResponseEntity.BodyBuilder responseBuild = getResponseBuilderWithHttpStatus(response);
 
             HttpRequestWrapper httpRequestWrapper = mapper.treeToValue(response.getData().get(), HttpRequestWrapper.class);
+            byte[] responseBody = getResponseBody(request, response, httpRequestWrapper);
             responseBuild = setHeaders(responseBuild, httpRequestWrapper.getHeader());
+            responseBuild.header(TraceContext.TRACEPARENT, getResponseTraceContext(response, traceContext).toTraceparent());
 
-            String responseBody = httpRequestWrapper.getBody();
-            log.info("Reponse Body is '{}'", responseBody);
+            log.debug("Reponse Body has {} bytes", responseBody == null ? 0 : responseBody.length);
             ResponseEntity responseEntity;
-            if (responseBody != null && !responseBody.isEmpty()) {
+            if (responseBody != null && responseBody.length > 0) {
                 responseEntity = responseBuild.body(responseBody);
                 log.info("Returning with body the response entity '{}'", responseEntity);
                 return responseEntity;
@@ -120,9 +302,273 @@ public class HttpToMessagingAdapter {
                 return responseEntity;
             }
         } catch (TimeoutException e) {
+            cancelRequest(openRequestFuture, sentEvent.get(), backend, "timeout");
             return getErrorResponse(HttpStatus.GATEWAY_TIMEOUT, "No response in time", e);
+        } catch (CancellationException e) {
+            log.info("Stopped waiting for the response of the cancelled request");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (IOException e) {
             return getErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while reading the body", e);
+        } finally {
+            // Marks the request as finished, so it isn't counted as a disconnect on completion. The cancellation
+            // on completion doesn't remove the open request anymore then, e.g. if the message could not be sent
+            openRequestFuture.complete(null);
+            if (sentEvent.get() != null) {
+                openRequestHandler.deleteRequest(sentEvent.get().getId());
+            }
+        }
+    }
+
+    /**
+     * Sends a request message and records the time until the broker acknowledged it.
+     *
+     * @param topic
+     * @param micoCloudEvent
+     */
+    private void send(String topic, MicoCloudEventImpl<JsonNode> micoCloudEvent) {
+        long publishStart = System.nanoTime();
+        kafkaTemplate.send(topic, micoCloudEvent).addCallback(
+            result -> publishSpan.record(System.nanoTime() - publishStart, TimeUnit.NANOSECONDS),
+            e -> log.warn("Failed to send the cloud event '{}' to topic '{}'", micoCloudEvent.getId(), topic, e));
+    }
+
+    /**
+     * @param request
+     * @return true if the request path matches one of the fire-and-forget paths
+     */
+    private boolean isFireAndForgetRequest(HttpServletRequest request) {
+        String requestUri = request.getRequestURI();
+        for (String path : journalConfig.getFireAndForgetPaths()) {
+            if (pathMatcher.match(path, requestUri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publishes a request without a return topic and answers with 202 Accepted right away.
+     * If the journal is enabled, the request is written to the journal when it can't be published,
+     * and while the journal holds a backlog of older requests, so they are replayed in order.
+     *
+     * @param micoCloudEvent the request message
+     * @param topic          the topic of the backend
+     * @return 202 Accepted, or 503 if the request could neither be published nor written to the journal
+     */
+    private ResponseEntity handleFireAndForgetRequest(MicoCloudEventImpl<JsonNode> micoCloudEvent, String topic) {
+        // Nobody waits for a response, and a replayed request must not be dropped as expired
+        micoCloudEvent.setReturnTopic(null).setExpiryDate(null);
+        if (requestJournal.isBacklogged()) {
+            return requestJournal.append(topic, micoCloudEvent) ? ResponseEntity.accepted().build() : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        log.info("Sending fire-and-forget cloud Event '{}' to topic '{}'", micoCloudEvent, topic);
+        long publishStart = System.nanoTime();
+        try {
+            fireAndForgetTemplate.send(topic, micoCloudEvent).addCallback(
+                result -> publishSpan.record(System.nanoTime() - publishStart, TimeUnit.NANOSECONDS),
+                e -> {
+                    log.warn("Failed to send the cloud event '{}' to topic '{}'", micoCloudEvent.getId(), topic, e);
+                    if (!requestJournal.append(topic, micoCloudEvent)) {
+                        // The request was already accepted
+                        log.error("Dropped the accepted fire-and-forget cloud event '{}'", micoCloudEvent.getId());
+                        meterRegistry.counter(METRIC_DROPPED_REQUESTS).increment();
+                    }
+                });
+        } catch (KafkaException e) {
+            // Thrown if the producer buffer is full or the topic metadata isn't available within the max block time
+            log.warn("Could not send the cloud event '{}' to topic '{}'", micoCloudEvent.getId(), topic, e);
+            if (!requestJournal.append(topic, micoCloudEvent)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Continues the trace of the request from its {@code traceparent} header or starts a new one,
+     * and sets a span of the adapter as the {@code traceparent} extension of the cloud event.
+     *
+     * @param request
+     * @param micoCloudEvent
+     * @return the trace context of the adapter span
+     */
+    private TraceContext setTraceContext(HttpServletRequest request, MicoCloudEventImpl<JsonNode> micoCloudEvent) {
+        TraceContext parent = TraceContext.fromTraceparent(request.getHeader(TraceContext.TRACEPARENT));
+        TraceContext traceContext = parent != null ? parent.newChild() : TraceContext.newTrace();
+        micoCloudEvent.setExtension(TraceContext.TRACEPARENT, TextNode.valueOf(traceContext.toTraceparent()));
+        String traceState = request.getHeader(TraceContext.TRACESTATE);
+        if (parent != null && traceState != null) {
+            micoCloudEvent.setExtension(TraceContext.TRACESTATE, TextNode.valueOf(traceState));
+        }
+        return traceContext;
+    }
+
+    /**
+     * Gets the trace context that is returned to the client. A backend that continued the trace
+     * returns its own span in the response message, otherwise the span of the adapter is used.
+     *
+     * @param response
+     * @param traceContext the trace context of the adapter span
+     * @return the trace context for the response
+     */
+    private TraceContext getResponseTraceContext(MicoCloudEventImpl<JsonNode> response, TraceContext traceContext) {
+        JsonNode traceparent = response.getExtensionsMap().get(TraceContext.TRACEPARENT);
+        TraceContext responseTraceContext = traceparent != null ? TraceContext.fromTraceparent(traceparent.asText()) : null;
+        return traceContext.isSameTrace(responseTraceContext) ? responseTraceContext : traceContext;
+    }
+
+    /**
+     * @param request
+     * @return true if the request path matches one of the scatter-gather paths
+     */
+    private boolean isScatterGatherRequest(HttpServletRequest request) {
+        if (scatterGatherConfig.getTopics().isEmpty()) {
+            return false;
+        }
+        String requestUri = request.getRequestURI();
+        for (String path : scatterGatherConfig.getPaths()) {
+            if (pathMatcher.match(path, requestUri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publishes a copy of the request to each scatter-gather topic at once and waits until
+     * the aggregation policy is met. Each copy has its own id, so its response is matched
+     * like a single response, and all copies share the scatter id extension.
+     *
+     * @param micoCloudEvent    the request message
+     * @param method            the HTTP method of the request
+     * @param url               the url of the request at the backend
+     * @param timeoutMillis     the time to wait for the responses
+     * @param openRequestFuture the future that is cancelled if the client is gone
+     * @return the response entity with the aggregated responses
+     * @throws InterruptedException
+     */
+    private ResponseEntity handleScatterGatherRequest(MicoCloudEventImpl<JsonNode> micoCloudEvent, String method, String url, long timeoutMillis,
+                                                      CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture) throws InterruptedException {
+        List<String> topics = scatterGatherConfig.getTopics();
+        int requiredResponses = scatterGatherConfig.getPolicy().getRequiredResponses(topics.size(), scatterGatherConfig.getCount());
+        CountDownLatch latch = new CountDownLatch(requiredResponses);
+        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_SCATTER_ID, TextNode.valueOf(micoCloudEvent.getId()));
+
+        Map<String, CompletableFuture<MicoCloudEventImpl<JsonNode>>> responseFutures = new LinkedHashMap<>();
+        Map<String, String> messageIds = new HashMap<>();
+        // Releases the waiting thread if the request is cancelled
+        openRequestFuture.whenComplete((response, e) -> {
+            while (latch.getCount() > 0) {
+                latch.countDown();
+            }
+        });
+        try {
+            for (String topic : topics) {
+                MicoCloudEventImpl<JsonNode> scatteredEvent = new MicoCloudEventImpl<>(micoCloudEvent)
+                    .setRandomId(idGenerator)
+                    .setRoute(routeHistoryRecorder.newRoute(ROUTE_HISTORY_TYPE_TOPIC, topic, micoCloudEvent.getTime().orElse(null)));
+                CompletableFuture<MicoCloudEventImpl<JsonNode>> responseFuture = new CompletableFuture<>();
+                responseFuture.thenRun(latch::countDown);
+                responseFutures.put(topic, responseFuture);
+                messageIds.put(topic, scatteredEvent.getId());
+                openRequestHandler.addRequest(scatteredEvent.getId(), responseFuture, method, url);
+                log.info("Sending cloud Event '{}' to topic '{}'", scatteredEvent, topic);
+                send(topic, scatteredEvent);
+            }
+            boolean policyMet = latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (openRequestFuture.isCancelled()) {
+                throw new CancellationException();
+            }
+            ArrayNode responses = getAggregatedResponses(responseFutures);
+            log.info("Got {} of {} responses for the scattered message '{}'", responses.size(), topics.size(), micoCloudEvent.getId());
+            HttpStatus status = policyMet && responses.size() >= requiredResponses || scatterGatherConfig.getPolicy() == ScatterGatherConfig.AggregationPolicy.TIMEOUT
+                ? HttpStatus.OK : HttpStatus.GATEWAY_TIMEOUT;
+            return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(responses);
+        } finally {
+            messageIds.values().forEach(openRequestHandler::deleteRequest);
+            responseFutures.values().forEach(responseFuture -> responseFuture.cancel(false));
+            // Marks the request as done, so it isn't counted as cancelled
+            openRequestFuture.complete(null);
+        }
+    }
+
+    /**
+     * Collects the responses that arrived into one JSON array. Each element contains the topic,
+     * the status, the headers and the Base64 encoded body of a response.
+     *
+     * @param responseFutures the futures of the responses by topic
+     * @return the aggregated responses
+     */
+    private ArrayNode getAggregatedResponses(Map<String, CompletableFuture<MicoCloudEventImpl<JsonNode>>> responseFutures) {
+        ArrayNode responses = mapper.createArrayNode();
+        for (Map.Entry<String, CompletableFuture<MicoCloudEventImpl<JsonNode>>> entry : responseFutures.entrySet()) {
+            MicoCloudEventImpl<JsonNode> response = entry.getValue().getNow(null);
+            if (response == null || !response.getData().isPresent()) {
+                continue;
+            }
+            try {
+                HttpRequestWrapper httpRequestWrapper = mapper.treeToValue(response.getData().get(), HttpRequestWrapper.class);
+                JsonNode bodyEncoding = response.getExtensionsMap().get(CLOUD_EVENT_ATTRIBUTE_BODY_ENCODING);
+                if (bodyEncoding != null && httpRequestWrapper.getBodyBytes() != null) {
+                    httpRequestWrapper.setBodyBytes(bodyCompressor.decompress(httpRequestWrapper.getBodyBytes(), bodyEncoding.asText()));
+                }
+                ObjectNode aggregatedResponse = responses.addObject();
+                aggregatedResponse.put("topic", entry.getKey());
+                aggregatedResponse.put("status", Integer.valueOf(response.getExtensionsMap().getOrDefault(CLOUD_EVENT_ATTRIBUTE_HTTP_RESPONSE_STATUS, defaultValue).asText()));
+                aggregatedResponse.setAll((ObjectNode) mapper.valueToTree(httpRequestWrapper));
+            } catch (IOException e) {
+                log.warn("Skipping the unreadable response '{}' from the topic '{}'", response.getId(), entry.getKey(), e);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Reads the body of a response message. A body that was compressed by the backend
+     * is passed through if the client accepts the encoding, otherwise it is decompressed.
+     * The response varies by Accept-Encoding then, so caches keep both variants apart.
+     *
+     * @param request            the HTTP request
+     * @param response           the response message
+     * @param httpRequestWrapper the HTTP response inside the message, its headers are adjusted to the returned body
+     * @return the body for the HTTP response
+     * @throws IOException if the body can't be decompressed
+     */
+    private byte[] getResponseBody(HttpServletRequest request, MicoCloudEventImpl<JsonNode> response, HttpRequestWrapper httpRequestWrapper) throws IOException {
+        byte[] responseBody = httpRequestWrapper.getBodyBytes();
+        JsonNode bodyEncoding = response.getExtensionsMap().get(CLOUD_EVENT_ATTRIBUTE_BODY_ENCODING);
+        if (responseBody == null || bodyEncoding == null) {
+            return responseBody;
+        }
+        Map<String, List<String>> headers = httpRequestWrapper.getHeader() != null ? httpRequestWrapper.getHeader() : new HashMap<>();
+        headers.keySet().removeIf(HttpHeaders.CONTENT_LENGTH::equalsIgnoreCase);
+        boolean hasContentEncoding = headers.keySet().stream().anyMatch(HttpHeaders.CONTENT_ENCODING::equalsIgnoreCase);
+        addVaryAcceptEncoding(headers);
+        httpRequestWrapper.setHeader(headers);
+        String acceptEncoding = request.getHeaders(HttpHeaders.ACCEPT_ENCODING).hasMoreElements()
+            ? String.join(",", Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))) : null;
+        if (!hasContentEncoding && BodyCompressor.isAccepted(acceptEncoding, bodyEncoding.asText())) {
+            headers.put(HttpHeaderNames.normalize(HttpHeaders.CONTENT_ENCODING), Collections.singletonList(bodyEncoding.asText()));
+            return responseBody;
+        }
+        return bodyCompressor.decompress(responseBody, bodyEncoding.asText());
+    }
+
+    /**
+     * Adds Accept-Encoding to the Vary header of a response, keeping the values the backend already set.
+     *
+     * @param headers the headers of the response
+     */
+    private static void addVaryAcceptEncoding(Map<String, List<String>> headers) {
+        String varyKey = headers.keySet().stream().filter(HttpHeaders.VARY::equalsIgnoreCase).findFirst().orElse(HttpHeaderNames.normalize(HttpHeaders.VARY));
+        List<String> vary = new ArrayList<>(headers.getOrDefault(varyKey, Collections.emptyList()));
+        boolean varies = vary.stream()
+            .flatMap(value -> Arrays.stream(value.split(",")))
+            .map(String::trim)
+            .anyMatch(value -> "*".equals(value) || HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(value));
+        if (!varies) {
+            vary.add(HttpHeaders.ACCEPT_ENCODING);
+            headers.put(varyKey, vary);
         }
     }
 
@@ -133,14 +579,16 @@ public class HttpToMessagingAdapter {
      * @param headers
      * @return a body builder with the provided headers
      */
-    private ResponseEntity.BodyBuilder setHeaders(ResponseEntity.BodyBuilder responseBuilder, Map<String, String> headers) {
-        if (!headers.isEmpty()) {
-            MultiValueMap<String, String> multiValueHeaderMap = new LinkedMultiValueMap<>();
-            for (Map.Entry<String, String> entry : headers.entrySet()) {
-                log.info("Add header with key '{}' and value '{}'", entry.getKey(), entry.getValue());
-                multiValueHeaderMap.put(entry.getKey(), Collections.singletonList(entry.getValue()));
+    private ResponseEntity.BodyBuilder setHeaders(ResponseEntity.BodyBuilder responseBuilder, Map<String, List<String>> headers) {
+        if (headers != null && !headers.isEmpty()) {
+            log.debug("Add headers '{}'", headers);
+            HttpHeaders httpHeaders = new HttpHeaders();
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (headerFilter.isAllowed(entry.getKey(), entry.getValue(), HeaderFilter.Direction.RESPONSE)) {
+                    httpHeaders.put(entry.getKey(), entry.getValue());
+                }
             }
-            return responseBuilder.headers(new HttpHeaders(multiValueHeaderMap));
+            return responseBuilder.headers(httpHeaders);
         }
         return responseBuilder;
     }
@@ -159,19 +607,85 @@ public class HttpToMessagingAdapter {
 
     /**
      * Waits for a response with a correlationId matching the provided messageId.
+     * The request is removed from the open requests in any case.
      *
      * @param messageId
      * @param openRequestFuture
+     * @param timeoutMillis
      * @return
      * @throws InterruptedException
      * @throws ExecutionException
      * @throws TimeoutException
      */
-    private MicoCloudEventImpl<JsonNode> waitForResponseMessage(String messageId, CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture) throws InterruptedException, ExecutionException, TimeoutException {
-        openRequestHandler.addRequest(messageId, openRequestFuture);
-        MicoCloudEventImpl<JsonNode> response = openRequestFuture.get(MESSAGE_RESPONSE_TIMEOUT, TimeUnit.MINUTES);
-        openRequestHandler.deleteRequest(messageId);
-        return response;
+    private MicoCloudEventImpl<JsonNode> waitForResponseMessage(String messageId, CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture, long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return openRequestFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            openRequestHandler.deleteRequest(messageId);
+        }
+    }
+
+    /**
+     * Cancels a request that is still waiting for its response, e.g. because the client disconnected.
+     * The waiting thread is released, the request is removed from the open requests
+     * and optionally a cancellation message is sent to the backend.
+     *
+     * @param openRequestFuture the future of the request
+     * @param requestEvent      the sent cloud event, {@code null} if it was not sent yet
+     * @param backend           the backend the request was sent to
+     * @param reason            the reason for the metrics
+     */
+    private void releaseRequestExecutorSlot() {
+        if (requestExecutorSlots != null) {
+            requestExecutorSlots.release();
+        }
+    }
+
+    private void cancelRequest(CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequestFuture, MicoCloudEventImpl<JsonNode> requestEvent,
+                               BackendRouter.Backend backend, String reason) {
+        if (!openRequestFuture.cancel(false)) {
+            return;
+        }
+        meterRegistry.counter(METRIC_CANCELLED_REQUESTS, "reason", reason).increment();
+        if (requestEvent == null) {
+            return;
+        }
+        log.info("Cancelled the request '{}' because of {}", requestEvent.getId(), reason);
+        openRequestHandler.deleteRequest(requestEvent.getId());
+        if (kafkaConfig.isPublishCancellations()) {
+            MicoCloudEventImpl<JsonNode> cancelEvent = new MicoCloudEventImpl<JsonNode>()
+                .setRandomId(idGenerator)
+                .setSource(SOURCE_HTTP_TO_MESSAGING_ADAPTER)
+                .setType(CLOUD_EVENT_ATTRIBUTE_CANCEL_MESSAGE_TYPE)
+                .setTime(EventClock.now())
+                .setCorrelationId(requestEvent.getId())
+                .setIsErrorMessage(false)
+                .setIsTestMessage(false);
+            kafkaTemplate.send(backend.getTopic(), cancelEvent);
+        }
+    }
+
+    /**
+     * Gets the time to wait for the response. Clients can shorten the default timeout
+     * with the {@code Request-Timeout} header in seconds.
+     *
+     * @param request
+     * @return the timeout in milliseconds
+     */
+    private long getResponseTimeoutMillis(HttpServletRequest request) {
+        long maxTimeoutMillis = TimeUnit.MINUTES.toMillis(MESSAGE_RESPONSE_TIMEOUT);
+        String requestTimeout = request.getHeader(HEADER_REQUEST_TIMEOUT);
+        if (requestTimeout != null) {
+            try {
+                long timeoutMillis = (long) (Double.parseDouble(requestTimeout.trim()) * 1000);
+                if (timeoutMillis > 0) {
+                    return Math.min(timeoutMillis, maxTimeoutMillis);
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring the invalid request timeout '{}'", requestTimeout);
+            }
+        }
+        return maxTimeoutMillis;
     }
 
     /**
@@ -191,88 +705,133 @@ public class HttpToMessagingAdapter {
      * Generates a cloud event and sets all the required attributes.
      *
      * @param request
+     * @param backend            the backend the request is sent to
      * @param uriWithQueryString
+     * @param timeoutMillis      the time until the request expires
      * @return
-     * @throws URISyntaxException
      * @throws IOException
      */
-    private MicoCloudEventImpl<JsonNode> getMicoCloudEventFromHttpRequest(HttpServletRequest request, String uriWithQueryString) throws URISyntaxException, IOException {
-        MicoCloudEventImpl<JsonNode> micoCloudEvent = new MicoCloudEventImpl<>();
+    private MicoCloudEventImpl<JsonNode> getMicoCloudEventFromHttpRequest(HttpServletRequest request, BackendRouter.Backend backend, String uriWithQueryString, long timeoutMillis) throws IOException {
+        MicoCloudEventImpl<JsonNode> micoCloudEvent = newRequestCloudEvent(backend, timeoutMillis);
 
-        JsonNode uri = mapper.valueToTree(uriWithQueryString);
-        JsonNode method = mapper.valueToTree(request.getMethod());
-        JsonNode backendUrl = mapper.valueToTree(backendConfig.getUrl());
-
-        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_ADAPTER_REQUEST_URL, uri);
-        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_ADAPTER_REQUEST_METHOD, method);
-        micoCloudEvent.setSource(new URI(CLOUD_EVENT_ATTRIBUTE_SOURCE_HTTP_TO_MESSAGING_ADAPTER));
-        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_BACKEND_URL, backendUrl);
-        micoCloudEvent.setType(CLOUD_EVENT_ATTRIBUTE_MESSAGE_TYPE);
-        micoCloudEvent.setContentType(CLOUD_EVENT_ATTRIBUTE_CONTENT_TYPE);
-        micoCloudEvent.setTime(ZonedDateTime.now());
-        micoCloudEvent.setRandomId();
-        micoCloudEvent.setIsErrorMessage(false);
-        micoCloudEvent.setIsTestMessage(false);
-        micoCloudEvent.setReturnTopic(kafkaConfig.getInputTopic());
-        micoCloudEvent = updateRouteHistoryWithTopic(micoCloudEvent, kafkaConfig.getOutputTopic());
+        String requestMethod = request.getMethod();
+        JsonNode method = REQUEST_METHOD_NODES.get(requestMethod);
+        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_ADAPTER_REQUEST_URL, TextNode.valueOf(uriWithQueryString));
+        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_ADAPTER_REQUEST_METHOD, method != null ? method : TextNode.valueOf(requestMethod));
 
         HttpRequestWrapper httpRequestWrapper = new HttpRequestWrapper();
         httpRequestWrapper.setHeader(getRequestHeaderMap(request));
-        setRequestBody(request, httpRequestWrapper);
+        setRequestBody(request, httpRequestWrapper, micoCloudEvent);
 
         JsonNode messageBody = mapper.valueToTree(httpRequestWrapper);
         micoCloudEvent.setData(messageBody);
         return micoCloudEvent;
     }
 
+    /**
+     * Creates a cloud event with the attributes that are the same for every request.
+     * The constant values are computed once, so only the event itself and its
+     * route history entry are allocated.
+     *
+     * @param backend       the backend the request is sent to
+     * @param timeoutMillis the time until the request expires
+     * @return a new cloud event with an id, time, expiry date and route history
+     */
+    private MicoCloudEventImpl<JsonNode> newRequestCloudEvent(BackendRouter.Backend backend, long timeoutMillis) {
+        ZonedDateTime now = EventClock.now();
+
+        MicoCloudEventImpl<JsonNode> micoCloudEvent = new MicoCloudEventImpl<>();
+        micoCloudEvent.setSource(SOURCE_HTTP_TO_MESSAGING_ADAPTER)
+            .setType(CLOUD_EVENT_ATTRIBUTE_MESSAGE_TYPE)
+            .setContentType(CLOUD_EVENT_ATTRIBUTE_CONTENT_TYPE)
+            .setTime(now)
+            .setExpiryDate(now.plus(timeoutMillis, ChronoUnit.MILLIS))
+            .setRandomId(idGenerator)
+            .setIsErrorMessage(false)
+            .setIsTestMessage(false)
+            .setReturnTopic(kafkaConfig.getInputTopic())
+            .setRoute(routeHistoryRecorder.newRoute(ROUTE_HISTORY_TYPE_TOPIC, backend.getTopic(), now));
+        micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_BACKEND_URL, backend.getUrlNode());
+        return micoCloudEvent;
+    }
+
     /**
      * Sets the response body from the request in the httpRequestWrapper.
+     * The body is copied as is, bodies without a content encoding are compressed
+     * if they exceed the compression threshold.
      *
      * @param request
      * @param httpRequestWrapper
+     * @param micoCloudEvent     the cloud event that is marked with the body encoding if the body is compressed
      * @throws IOException
      */
-    private void setRequestBody(HttpServletRequest request, HttpRequestWrapper httpRequestWrapper) throws IOException {
+    private void setRequestBody(HttpServletRequest request, HttpRequestWrapper httpRequestWrapper, MicoCloudEventImpl<JsonNode> micoCloudEvent) throws IOException {
         String requestMethod = request.getMethod().toUpperCase();
         if (HttpMethod.POST.matches(requestMethod) || HttpMethod.PUT.matches(requestMethod)) {
-            String body = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
-            httpRequestWrapper.setBody(body);
+            byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+            if (bodyCompressor.shouldCompress(body, request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+                body = bodyCompressor.compress(body);
+                micoCloudEvent.setExtension(CLOUD_EVENT_ATTRIBUTE_BODY_ENCODING, TextNode.valueOf(BodyCompressor.ENCODING_GZIP));
+            }
+            httpRequestWrapper.setBodyBytes(body);
         }
     }
 
     /**
-     * Reads the headers from a request
+     * Reads the headers that pass the header filter with all their values from a request
      *
      * @param request
      * @return
      */
-    private Map<String, String> getRequestHeaderMap(HttpServletRequest request) {
-        List<String> headers = Collections.list(request.getHeaderNames());
-        Map<String, String> headerMap = new HashMap<>();
-        for (String header : headers) {
-            headerMap.put(header, request.getHeader(header));
+    private Map<String, List<String>> getRequestHeaderMap(HttpServletRequest request) {
+        Map<String, List<String>> headerMap = new HashMap<>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            Enumeration<String> values = request.getHeaders(headerName);
+            if (!values.hasMoreElements()) {
+                continue;
+            }
+            String firstValue = values.nextElement();
+            List<String> headerValues;
+            if (values.hasMoreElements()) {
+                headerValues = new ArrayList<>(2);
+                headerValues.add(firstValue);
+                while (values.hasMoreElements()) {
+                    headerValues.add(values.nextElement());
+                }
+            } else {
+                headerValues = Collections.singletonList(firstValue);
+            }
+            String normalizedName = HttpHeaderNames.normalize(headerName);
+            if (headerFilter.isAllowed(normalizedName, headerValues, HeaderFilter.Direction.REQUEST)) {
+                headerMap.merge(normalizedName, headerValues, HttpToMessagingAdapter::concatHeaderValues);
+            }
         }
         return headerMap;
     }
 
+    private static List<String> concatHeaderValues(List<String> values, List<String> additionalValues) {
+        List<String> headerValues = new ArrayList<>(values);
+        headerValues.addAll(additionalValues);
+        return headerValues;
+    }
+
 
     /**
-     * Gets the request uri with the query string and joins them with the backendUrl
+     * Gets the request uri with the query string and joins them with the url of the backend
      *
      * @param request
+     * @param backend
      * @return
      */
-    public String getUriWithQueryString(HttpServletRequest request) {
+    public String getUriWithQueryString(HttpServletRequest request, BackendRouter.Backend backend) {
         String requestUri = request.getRequestURI();
         String queryString = request.getQueryString();
-        String backendUrl = backendConfig.getUrl();
-        if (backendUrl.endsWith("/")) {
-            backendUrl = backendUrl.substring(0, backendUrl.length() - 1);
-        }
         if (queryString == null) {
-            return backendUrl + requestUri;
+            return backend.getUrlPrefix() + requestUri;
         } else {
-            return backendUrl + requestUri + "?" + queryString;
+            return backend.getUrlPrefix() + requestUri + "?" + queryString;
         }
     }
 
@@ -289,6 +848,7 @@ public class HttpToMessagingAdapter {
 
     /**
      * Update the routing history in the `route` header field of the cloud event.
+     * The routing step is appended in place, subject to the route history cap and sampling.
      *
      * @param cloudEvent the cloud event to update
      * @param id         the string id of the next routing step the message will take
@@ -296,10 +856,8 @@ public class HttpToMessagingAdapter {
      * @return the updated cloud event
      */
     public MicoCloudEventImpl<JsonNode> updateRouteHistory(MicoCloudEventImpl<JsonNode> cloudEvent, String id, String type) {
-        RouteHistory routingStep = new RouteHistory(type, id, ZonedDateTime.now());
-        List<RouteHistory> history = cloudEvent.getRoute().map(ArrayList::new).orElse(new ArrayList<>());
-        history.add(routingStep);
-        return new MicoCloudEventImpl<>(cloudEvent).setRoute(history);
+        routeHistoryRecorder.append(cloudEvent, type, id, EventClock.now());
+        return cloudEvent;
     }
 
 
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with the state of the producer and the reply consumer at a glance.
+ * All Kafka client metrics are available as {@code adapter.kafka.*} metrics.
+ */
+@Component
+@Endpoint(id = "kafka")
+public class KafkaEndpoint {
+
+    private static final List<String> PRODUCER_METRICS = Arrays.asList(
+        "record-send-rate", "record-error-rate", "record-retry-rate", "batch-size-avg",
+        "record-queue-time-avg", "request-latency-avg", "buffer-available-bytes");
+
+    private static final List<String> CONSUMER_METRICS = Arrays.asList(
+        "records-consumed-rate", "records-lag-max", "fetch-latency-avg", "commit-latency-avg",
+        "last-heartbeat-seconds-ago", "assigned-partitions");
+
+    @Autowired
+    private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @ReadOperation
+    public Map<String, Object> kafka() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("producer", getProducerState());
+        state.put("consumers", getConsumerStates());
+        return state;
+    }
+
+    private Map<String, Object> getProducerState() {
+        Map<String, Object> producer = new LinkedHashMap<>();
+        Map<String, Double> metrics = getMetrics(kafkaTemplate.metrics(), PRODUCER_METRICS);
+        producer.put("status", metrics.getOrDefault("record-error-rate", 0.0) > 0 ? "DEGRADED" : "UP");
+        producer.put("metrics", metrics);
+        return producer;
+    }
+
+    private List<Map<String, Object>> getConsumerStates() {
+        List<Map<String, Object>> consumers = new ArrayList<>();
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            Collection<TopicPartition> assignedPartitions = container.getAssignedPartitions();
+            boolean assigned = assignedPartitions != null && !assignedPartitions.isEmpty();
+            Map<String, Object> consumer = new LinkedHashMap<>();
+            consumer.put("status", container.isRunning() && assigned ? "UP" : "DOWN");
+            consumer.put("running", container.isRunning());
+            List<String> partitions = new ArrayList<>();
+            if (assignedPartitions != null) {
+                assignedPartitions.forEach(partition -> partitions.add(partition.toString()));
+            }
+            consumer.put("assignedPartitions", partitions);
+            Map<String, Map<String, Double>> clientMetrics = new LinkedHashMap<>();
+            container.metrics().forEach((clientId, metrics) -> clientMetrics.put(clientId, getMetrics(metrics, CONSUMER_METRICS)));
+            consumer.put("metrics", clientMetrics);
+            consumers.add(consumer);
+        }
+        return consumers;
+    }
+
+    /**
+     * Gets the client wide values of the metrics with the given names, the per topic metrics are left out.
+     */
+    private static Map<String, Double> getMetrics(Map<MetricName, ? extends Metric> metrics, List<String> names) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        metrics.forEach((metricName, metric) -> {
+            if (names.contains(metricName.name()) && !metricName.tags().containsKey("topic") && !metricName.tags().containsKey("node-id")) {
+                Object value = metric.metricValue();
+                if (value instanceof Number) {
+                    values.put(metricName.name(), ((Number) value).doubleValue());
+                }
+            }
+        });
+        return values;
+    }
+}
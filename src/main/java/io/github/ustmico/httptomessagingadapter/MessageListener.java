@@ -20,14 +20,27 @@
 package io.github.ustmico.httptomessagingadapter;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
 import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import io.github.ustmico.httptomessagingadapter.kafka.ReplyRecoverer;
+import io.github.ustmico.httptomessagingadapter.kafka.ReplyReplayRebalanceListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
@@ -36,17 +49,71 @@ public class MessageListener {
     @Autowired
     OpenRequestHandler openRequestHandler;
 
+    @Autowired
+    @Qualifier("replyDispatchExecutor")
+    ThreadPoolTaskExecutor replyDispatchExecutor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    KafkaConfig kafkaConfig;
+
+    @Autowired
+    ReplyRecoverer replyRecoverer;
+
+    @Autowired
+    ReplyReplayRebalanceListener replyReplayRebalanceListener;
+
+    private Timer dispatchLag;
+
+    private Timer dispatchSpan;
+
+    private Counter unmatchedReplies;
+
+    @PostConstruct
+    public void init() {
+        dispatchLag = meterRegistry.timer("adapter.reply.dispatch.lag");
+        dispatchSpan = meterRegistry.timer(HttpToMessagingAdapter.METRIC_REQUEST_SPANS, "span", "dispatch");
+        unmatchedReplies = meterRegistry.counter("adapter.replies.unmatched");
+    }
+
     @KafkaListener(topics = "${kafka.input-topic}", groupId = "${kafka.group-id}")
-    public void receive(MicoCloudEventImpl<JsonNode> cloudEvent) {
+    public void receive(@Payload MicoCloudEventImpl<JsonNode> cloudEvent,
+                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                        @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+                        @Header(KafkaHeaders.OFFSET) long offset) {
         log.info("Received CloudEvent message: {}", cloudEvent);
         if (cloudEvent.getCorrelationId().isPresent()) {
             Optional<CompletableFuture<MicoCloudEventImpl<JsonNode>>> openRequestOptinal = openRequestHandler.getRequest(cloudEvent.getCorrelationId().get());
             if (openRequestOptinal.isPresent()) {
-                log.info("Found the right saved request");
-                openRequestOptinal.get().complete(cloudEvent);
+                JsonNode traceparent = cloudEvent.getExtensionsMap().get(TraceContext.TRACEPARENT);
+                log.info("Found the right saved request, trace '{}'", traceparent != null ? traceparent.asText() : "none");
+                dispatch(openRequestOptinal.get(), cloudEvent);
             } else {
                 log.info("There is no saved request for the correlationId '{}'", cloudEvent.getCorrelationId().get());
+                openRequestHandler.recordUnmatchedReply();
+                unmatchedReplies.increment();
+                // Replayed responses were already matched or dead-lettered when they were consumed first
+                if (kafkaConfig.isDeadLetterUnmatchedReplies() && !replyReplayRebalanceListener.isReplayed(topic, partition, offset)) {
+                    replyRecoverer.publishUnmatched(cloudEvent);
+                }
             }
         }
     }
+
+    /**
+     * Completes the waiting request on the reply dispatch executor.
+     *
+     * @param openRequest the future of the waiting request
+     * @param cloudEvent  the response message
+     */
+    private void dispatch(CompletableFuture<MicoCloudEventImpl<JsonNode>> openRequest, MicoCloudEventImpl<JsonNode> cloudEvent) {
+        long enqueueTime = System.nanoTime();
+        replyDispatchExecutor.execute(() -> {
+            dispatchLag.record(System.nanoTime() - enqueueTime, TimeUnit.NANOSECONDS);
+            openRequest.complete(cloudEvent);
+            dispatchSpan.record(System.nanoTime() - enqueueTime, TimeUnit.NANOSECONDS);
+        });
+    }
 }
@@ -20,20 +20,43 @@ package io.github.ustmico.httptomessagingadapter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Slf4j
 @Service
 @Scope("singleton")
 public class OpenRequestHandler {
 
-    private ConcurrentHashMap<String, CompletableFuture<MicoCloudEventImpl<JsonNode>>> openRequests = new ConcurrentHashMap<>();
+    /**
+     * The number of seconds the rate of unmatched replies is computed over.
+     */
+    protected static final int UNMATCHED_REPLY_WINDOW_SECONDS = 60;
+
+    /**
+     * The low bits of a slot hold the count, the high bits the second it belongs to.
+     */
+    private static final int UNMATCHED_REPLY_COUNT_BITS = 24;
+    private static final long UNMATCHED_REPLY_COUNT_MASK = (1L << UNMATCHED_REPLY_COUNT_BITS) - 1;
+
+    private ConcurrentHashMap<String, OpenRequest> openRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Unmatched replies per second of the window together with their second, so a slot is reset and counted
+     * in one compare and set when its second comes around again.
+     */
+    private final AtomicLongArray unmatchedReplies = new AtomicLongArray(UNMATCHED_REPLY_WINDOW_SECONDS);
 
     /**
      * Returns the future for the request with the specified correlationId
@@ -41,8 +64,9 @@ public class OpenRequestHandler {
      * @param correlationId
      * @return
      */
-    public synchronized Optional<CompletableFuture<MicoCloudEventImpl<JsonNode>>> getRequest(String correlationId) {
-        return Optional.ofNullable(openRequests.get(correlationId));
+    public Optional<CompletableFuture<MicoCloudEventImpl<JsonNode>>> getRequest(String correlationId) {
+        OpenRequest openRequest = openRequests.get(correlationId);
+        return openRequest != null ? Optional.of(openRequest.getFuture()) : Optional.empty();
     }
 
     /**
@@ -52,15 +76,23 @@ public class OpenRequestHandler {
      * @param value
      * @return {@code false} if there is already a request with the specified correlationId
      */
-    public synchronized boolean addRequest(String correlationId, CompletableFuture<MicoCloudEventImpl<JsonNode>> value) {
-        log.info("Add open request to store with the id", correlationId);
-        if (openRequests.containsKey(correlationId)) {
-            return false;
-        } else {
-            openRequests.put(correlationId, value);
-            log.info("The store has no a size of '{}'", openRequests.size());
-            return true;
-        }
+    public boolean addRequest(String correlationId, CompletableFuture<MicoCloudEventImpl<JsonNode>> value) {
+        return addRequest(correlationId, value, null, null);
+    }
+
+    /**
+     * Adds an open request with its HTTP method and url to the store for later retrieval
+     *
+     * @param correlationId
+     * @param value
+     * @param method        the HTTP method of the request
+     * @param url           the url of the request at the backend, only its path is kept,
+     *                      because the query string can contain tokens or personal data
+     * @return {@code false} if there is already a request with the specified correlationId
+     */
+    public boolean addRequest(String correlationId, CompletableFuture<MicoCloudEventImpl<JsonNode>> value, String method, String url) {
+        log.debug("Add open request to store with the id '{}'", correlationId);
+        return openRequests.putIfAbsent(correlationId, new OpenRequest(correlationId, value, method, stripQueryString(url), System.nanoTime())) == null;
     }
 
     /**
@@ -68,8 +100,84 @@ public class OpenRequestHandler {
      *
      * @param correlationId
      */
-    public synchronized void deleteRequest(String correlationId) {
-        log.info("Deleting request with the id '{}'", correlationId);
+    public void deleteRequest(String correlationId) {
+        log.debug("Deleting request with the id '{}'", correlationId);
         openRequests.remove(correlationId);
     }
+
+    /**
+     * @return the number of open requests
+     */
+    public int size() {
+        return openRequests.size();
+    }
+
+    /**
+     * Returns a weakly consistent view of the open requests that doesn't block adding and deleting requests.
+     *
+     * @return the open requests
+     */
+    public Collection<OpenRequest> getOpenRequests() {
+        return new ArrayList<>(openRequests.values());
+    }
+
+    /**
+     * Counts a reply without an open request.
+     */
+    public void recordUnmatchedReply() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        // The time of System.nanoTime() can be negative
+        int slot = (int) Math.floorMod(second, (long) UNMATCHED_REPLY_WINDOW_SECONDS);
+        long current;
+        long next;
+        do {
+            current = unmatchedReplies.get(slot);
+            long count = current >> UNMATCHED_REPLY_COUNT_BITS == second ? current & UNMATCHED_REPLY_COUNT_MASK : 0;
+            next = second << UNMATCHED_REPLY_COUNT_BITS | Math.min(count + 1, UNMATCHED_REPLY_COUNT_MASK);
+        } while (!unmatchedReplies.compareAndSet(slot, current, next));
+    }
+
+    /**
+     * @return the replies without an open request per second, averaged over the last minute
+     */
+    public double getUnmatchedReplyRate() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long count = 0;
+        for (int slot = 0; slot < UNMATCHED_REPLY_WINDOW_SECONDS; slot++) {
+            long replies = unmatchedReplies.get(slot);
+            if (second - (replies >> UNMATCHED_REPLY_COUNT_BITS) < UNMATCHED_REPLY_WINDOW_SECONDS) {
+                count += replies & UNMATCHED_REPLY_COUNT_MASK;
+            }
+        }
+        return (double) count / UNMATCHED_REPLY_WINDOW_SECONDS;
+    }
+
+    private static String stripQueryString(String url) {
+        int queryStart = url != null ? url.indexOf('?') : -1;
+        return queryStart >= 0 ? url.substring(0, queryStart) : url;
+    }
+
+    /**
+     * A request that waits for its reply.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class OpenRequest {
+
+        private final String correlationId;
+        private final CompletableFuture<MicoCloudEventImpl<JsonNode>> future;
+        private final String method;
+        /**
+         * The url at the backend without the query string.
+         */
+        private final String url;
+        private final long createdNanos;
+
+        /**
+         * @return the time the request waits for its reply in milliseconds
+         */
+        public long getAgeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos);
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Actuator endpoint with the requests that wait for their replies: their number, their ages,
+ * the oldest requests and the rate of replies that arrive without a waiting request.
+ * It works on a snapshot of the open requests and doesn't block them.
+ */
+@Component
+@Endpoint(id = "pending")
+public class PendingRequestsEndpoint {
+
+    protected static final int DEFAULT_OLDEST = 10;
+
+    /**
+     * The upper bounds of the age histogram in milliseconds.
+     */
+    private static final long[] AGE_BUCKETS_MILLIS = {100, 1_000, 5_000, 30_000, 60_000, 300_000};
+
+    @Autowired
+    private OpenRequestHandler openRequestHandler;
+
+    /**
+     * @param oldest the number of oldest requests that are listed, defaults to {@value DEFAULT_OLDEST}
+     * @return the state of the pending requests
+     */
+    @ReadOperation
+    public Map<String, Object> pending(@Nullable Integer oldest) {
+        Collection<OpenRequestHandler.OpenRequest> openRequests = openRequestHandler.getOpenRequests();
+        int limit = oldest != null ? Math.max(0, oldest) : DEFAULT_OLDEST;
+
+        long[] ageCounts = new long[AGE_BUCKETS_MILLIS.length + 1];
+        // Keeps the oldest requests, the youngest of them on top
+        PriorityQueue<OpenRequestHandler.OpenRequest> oldestRequests = new PriorityQueue<>(Math.max(1, limit),
+            Comparator.comparingLong(OpenRequestHandler.OpenRequest::getCreatedNanos).reversed());
+        for (OpenRequestHandler.OpenRequest openRequest : openRequests) {
+            ageCounts[getAgeBucket(openRequest.getAgeMillis())]++;
+            if (limit > 0) {
+                oldestRequests.add(openRequest);
+                if (oldestRequests.size() > limit) {
+                    oldestRequests.poll();
+                }
+            }
+        }
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("count", openRequests.size());
+        state.put("ages", getAgeHistogram(ageCounts));
+        state.put("oldest", getOldestRequests(oldestRequests));
+        state.put("unmatchedRepliesPerSecond", openRequestHandler.getUnmatchedReplyRate());
+        return state;
+    }
+
+    private static int getAgeBucket(long ageMillis) {
+        for (int i = 0; i < AGE_BUCKETS_MILLIS.length; i++) {
+            if (ageMillis < AGE_BUCKETS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return AGE_BUCKETS_MILLIS.length;
+    }
+
+    private static Map<String, Long> getAgeHistogram(long[] ageCounts) {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < AGE_BUCKETS_MILLIS.length; i++) {
+            histogram.put("<" + AGE_BUCKETS_MILLIS[i] + "ms", ageCounts[i]);
+        }
+        histogram.put(">=" + AGE_BUCKETS_MILLIS[AGE_BUCKETS_MILLIS.length - 1] + "ms", ageCounts[AGE_BUCKETS_MILLIS.length]);
+        return histogram;
+    }
+
+    private static List<Map<String, Object>> getOldestRequests(PriorityQueue<OpenRequestHandler.OpenRequest> oldestRequests) {
+        List<OpenRequestHandler.OpenRequest> sorted = new ArrayList<>(oldestRequests);
+        sorted.sort(Comparator.comparingLong(OpenRequestHandler.OpenRequest::getCreatedNanos));
+        List<Map<String, Object>> requests = new ArrayList<>(sorted.size());
+        for (OpenRequestHandler.OpenRequest openRequest : sorted) {
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("correlationId", openRequest.getCorrelationId());
+            request.put("method", openRequest.getMethod());
+            request.put("url", openRequest.getUrl());
+            request.put("ageMillis", openRequest.getAgeMillis());
+            requests.add(request);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.RateLimitConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests of each tenant with a token bucket and shares the pending
+ * requests fairly between the tenants by their weights.
+ */
+@Slf4j
+@Component
+public class TenantRateLimiter {
+
+    protected static final String DEFAULT_TENANT = "default";
+    protected static final String METRIC_TENANT_REQUESTS = "adapter.tenant.requests";
+
+    /**
+     * Tenants that are not configured share one token bucket, one share of the pending requests and one metric tag,
+     * so the number of buckets, pending counters and tags stays bounded whatever tenants the clients send.
+     */
+    private static final String OTHER_TENANTS = "other";
+
+    public enum Decision {
+        ACCEPTED, RATE_LIMITED, OVER_CAPACITY
+    }
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final TokenBucket UNLIMITED = new TokenBucket(0, 1);
+
+    /**
+     * The token buckets of the configured tenants and the shared bucket of the other tenants.
+     */
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * The pending requests by configured tenant and of the other tenants, guarded by this limiter.
+     */
+    private final Map<String, Integer> pendingRequests = new HashMap<>();
+
+    private int totalPendingRequests;
+
+    /**
+     * Gets the tenant of a request from the tenant header or the tenant path segment.
+     *
+     * @param request
+     * @return the tenant or {@value DEFAULT_TENANT} if the request has none
+     */
+    public String getTenant(HttpServletRequest request) {
+        if (StringUtils.hasText(rateLimitConfig.getTenantHeader())) {
+            String tenant = request.getHeader(rateLimitConfig.getTenantHeader());
+            if (StringUtils.hasText(tenant)) {
+                return tenant;
+            }
+        }
+        int segment = rateLimitConfig.getTenantPathSegment();
+        if (segment >= 0) {
+            String[] segments = StringUtils.tokenizeToStringArray(request.getRequestURI(), "/");
+            if (segment < segments.length) {
+                return segments[segment];
+            }
+        }
+        return DEFAULT_TENANT;
+    }
+
+    /**
+     * Admits a request of the tenant if it is within the rate limit of the tenant and the
+     * tenant's share of the pending requests. An admitted request must be released with
+     * {@link #release(String)} once it is completed.
+     *
+     * @param tenant
+     * @return the decision
+     */
+    public Decision tryAcquire(String tenant) {
+        RateLimitConfig.Tenant tenantConfig = rateLimitConfig.getTenants().get(tenant);
+        String tenantKey = getTenantKey(tenant);
+        TokenBucket bucket = getBucket(tenantKey, tenantConfig);
+        Decision decision;
+        if (!bucket.tryConsume()) {
+            decision = Decision.RATE_LIMITED;
+        } else if (!tryAcquirePending(tenantKey)) {
+            // A rejected request doesn't count against the rate
+            bucket.refund();
+            decision = Decision.OVER_CAPACITY;
+        } else {
+            decision = Decision.ACCEPTED;
+        }
+        String tenantTag = tenantConfig != null || DEFAULT_TENANT.equals(tenant) ? tenant : OTHER_TENANTS;
+        meterRegistry.counter(METRIC_TENANT_REQUESTS, "tenant", tenantTag, "outcome", decision.name().toLowerCase()).increment();
+        if (decision != Decision.ACCEPTED) {
+            log.debug("Rejected a request of the tenant '{}': {}", tenant, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Releases the pending request of a tenant.
+     *
+     * @param tenant
+     */
+    public synchronized void release(String tenant) {
+        if (rateLimitConfig.getMaxPendingRequests() <= 0) {
+            return;
+        }
+        tenant = getTenantKey(tenant);
+        Integer pending = pendingRequests.get(tenant);
+        if (pending == null) {
+            return;
+        }
+        if (pending <= 1) {
+            pendingRequests.remove(tenant);
+        } else {
+            pendingRequests.put(tenant, pending - 1);
+        }
+        totalPendingRequests--;
+    }
+
+    /**
+     * A tenant can always use free capacity. Once the pending requests reach the maximum,
+     * it only gets a request if it holds less than its weighted share of the tenants with pending requests.
+     */
+    private synchronized boolean tryAcquirePending(String tenant) {
+        int maxPendingRequests = rateLimitConfig.getMaxPendingRequests();
+        if (maxPendingRequests <= 0) {
+            return true;
+        }
+        int pending = pendingRequests.getOrDefault(tenant, 0);
+        if (totalPendingRequests >= maxPendingRequests) {
+            int weight = getWeight(tenant);
+            int activeWeights = pending == 0 ? weight : 0;
+            for (String activeTenant : pendingRequests.keySet()) {
+                activeWeights += getWeight(activeTenant);
+            }
+            if (pending >= (long) maxPendingRequests * weight / activeWeights) {
+                return false;
+            }
+        }
+        pendingRequests.put(tenant, pending + 1);
+        totalPendingRequests++;
+        return true;
+    }
+
+    private int getWeight(String tenant) {
+        RateLimitConfig.Tenant tenantConfig = rateLimitConfig.getTenants().get(tenant);
+        return tenantConfig != null ? tenantConfig.getWeight() : 1;
+    }
+
+    /**
+     * @param tenant
+     * @return the tenant itself if it is configured, otherwise {@value OTHER_TENANTS}
+     */
+    private String getTenantKey(String tenant) {
+        return rateLimitConfig.getTenants().containsKey(tenant) ? tenant : OTHER_TENANTS;
+    }
+
+    private TokenBucket getBucket(String tenantKey, RateLimitConfig.Tenant tenantConfig) {
+        TokenBucket bucket = buckets.get(tenantKey);
+        if (bucket == null) {
+            double rate = tenantConfig != null ? tenantConfig.getRate() : rateLimitConfig.getRate();
+            if (rate <= 0) {
+                return UNLIMITED;
+            }
+            int burst = tenantConfig != null ? tenantConfig.getBurst() : rateLimitConfig.getBurst();
+            bucket = buckets.computeIfAbsent(tenantKey, key -> new TokenBucket(rate, burst));
+        }
+        return bucket;
+    }
+
+    /**
+     * A token bucket that is refilled continuously with the rate up to the burst size.
+     */
+    static class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double rate, int burst) {
+            this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = burst;
+            this.tokens = burst;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume() {
+            if (tokensPerNano <= 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        /**
+         * Returns a token that was consumed by a request that was rejected afterwards.
+         */
+        synchronized void refund() {
+            if (tokensPerNano > 0) {
+                tokens = Math.min(capacity, tokens + 1);
+            }
+        }
+    }
+}
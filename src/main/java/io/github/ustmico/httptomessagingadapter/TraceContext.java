@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import lombok.Getter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * A W3C trace context as carried by the {@code traceparent} header and the
+ * {@code traceparent} extension of the cloud events.
+ */
+@Getter
+public final class TraceContext {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String TRACESTATE = "tracestate";
+
+    private static final Pattern TRACEPARENT_PATTERN = Pattern.compile("[0-9a-f]{2}-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}");
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+    private static final String VERSION = "00";
+    private static final String FLAG_SAMPLED = "01";
+
+    private final String traceId;
+    private final String spanId;
+    private final String flags;
+
+    private TraceContext(String traceId, String spanId, String flags) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.flags = flags;
+    }
+
+    /**
+     * Parses a {@code traceparent} value.
+     *
+     * @param traceparent the value, may be {@code null}
+     * @return the trace context or {@code null} if the value is missing or invalid
+     */
+    public static TraceContext fromTraceparent(String traceparent) {
+        if (traceparent == null) {
+            return null;
+        }
+        String value = traceparent.trim();
+        if (!TRACEPARENT_PATTERN.matcher(value).matches() || value.startsWith("ff")) {
+            return null;
+        }
+        String traceId = value.substring(3, 35);
+        String spanId = value.substring(36, 52);
+        if (INVALID_TRACE_ID.equals(traceId) || INVALID_SPAN_ID.equals(spanId)) {
+            return null;
+        }
+        return new TraceContext(traceId, spanId, value.substring(53, 55));
+    }
+
+    /**
+     * @return a new sampled trace
+     */
+    public static TraceContext newTrace() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(toHex(random.nextLong()) + toHex(random.nextLong()), toHex(random.nextLong()), FLAG_SAMPLED);
+    }
+
+    /**
+     * @return a new span of the same trace with this span as its parent
+     */
+    public TraceContext newChild() {
+        return new TraceContext(traceId, toHex(ThreadLocalRandom.current().nextLong()), flags);
+    }
+
+    /**
+     * @param other
+     * @return true if both contexts belong to the same trace
+     */
+    public boolean isSameTrace(TraceContext other) {
+        return other != null && traceId.equals(other.traceId);
+    }
+
+    public String toTraceparent() {
+        return VERSION + "-" + traceId + "-" + spanId + "-" + flags;
+    }
+
+    @Override
+    public String toString() {
+        return toTraceparent();
+    }
+
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : INVALID_SPAN_ID.substring(hex.length()) + hex;
+    }
+}
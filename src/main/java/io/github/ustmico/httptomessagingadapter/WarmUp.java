@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.github.ustmico.httptomessagingadapter.config.ScatterGatherConfig;
+import io.github.ustmico.httptomessagingadapter.config.WarmUpConfig;
+import io.github.ustmico.httptomessagingadapter.kafka.EnvelopeFormat;
+import io.github.ustmico.httptomessagingadapter.kafka.EventClock;
+import io.github.ustmico.httptomessagingadapter.kafka.IdGenerator;
+import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import io.github.ustmico.httptomessagingadapter.kafka.RouteHistory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.KafkaException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Warms up the adapter after the start, so the first requests don't pay for the topic metadata,
+ * the consumer group join and the cold serializers. The adapter reports to be ready once the
+ * warm-up is done, or once the warm-up timeout is over. The warm-up runs on its own thread,
+ * so it doesn't hold up the start. The readiness is reported by the {@code readiness} actuator endpoint, not by
+ * the health endpoint, so a liveness probe on the health endpoint doesn't restart the adapter while it warms up.
+ * The steps of the start are recorded for the {@code startup} actuator endpoint.
+ */
+@Slf4j
+@Component
+public class WarmUp {
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    @Autowired
+    private WarmUpConfig warmUpConfig;
+
+    @Autowired
+    private KafkaConfig kafkaConfig;
+
+    @Autowired
+    private ScatterGatherConfig scatterGatherConfig;
+
+    @Autowired
+    private BackendRouter backendRouter;
+
+    /**
+     * All producers the requests are sent with.
+     */
+    @Autowired
+    private List<KafkaTemplate<String, MicoCloudEventImpl<JsonNode>>> kafkaTemplates;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private GracefulShutdown gracefulShutdown;
+
+    private final List<StartupStep> timeline = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean warmedUp;
+
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        if (timeline.isEmpty()) {
+            long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+            timeline.add(new StartupStep("context", Instant.ofEpochMilli(jvmStart), System.currentTimeMillis() - jvmStart));
+        }
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!warmUpConfig.isEnabled()) {
+            warmedUp = true;
+            log.info("The adapter is ready");
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the warm-up steps until they are done or the warm-up timeout is over.
+     */
+    private void warmUp() {
+        long deadline = System.nanoTime() + warmUpConfig.getTimeout().toNanos();
+        runStep("topic-metadata", () -> fetchTopicMetadata(deadline));
+        runStep("serializers", () -> warmUpSerializers(deadline));
+        runStep("consumer-assignment", () -> awaitPartitionAssignment(deadline));
+        warmedUp = true;
+        log.info("The adapter is ready");
+    }
+
+    /**
+     * @return the recorded steps of the start
+     */
+    public List<StartupStep> getTimeline() {
+        synchronized (timeline) {
+            return new ArrayList<>(timeline);
+        }
+    }
+
+    /**
+     * @return {@code OUT_OF_SERVICE} while the adapter warms up or shuts down, {@code UP} otherwise
+     */
+    public Health getReadiness() {
+        if (gracefulShutdown.isDraining()) {
+            return Health.outOfService().withDetail("reason", "shutting down").build();
+        }
+        if (!warmedUp) {
+            return Health.outOfService().withDetail("reason", "warming up").build();
+        }
+        return Health.up().build();
+    }
+
+    private void runStep(String name, Runnable step) {
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.warn("The warm-up step '{}' failed", name, e);
+        }
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        timeline.add(new StartupStep(name, start, durationMillis));
+        log.info("Finished the warm-up step '{}' in {} ms", name, durationMillis);
+    }
+
+    /**
+     * Fetches the metadata of all topics the requests are sent to with every producer, which also
+     * connects the producers. The metadata requests block for up to the max block time of a producer,
+     * so they run on a separate thread that is abandoned once the deadline is over.
+     *
+     * @param deadline the {@link System#nanoTime()} the warm-up has to be done by
+     */
+    private void fetchTopicMetadata(long deadline) {
+        Set<String> topics = new LinkedHashSet<>(backendRouter.getTopics());
+        topics.addAll(scatterGatherConfig.getTopics());
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "warm-up-metadata");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Future<?> metadata = executor.submit(() -> {
+                for (KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> template : kafkaTemplates) {
+                    for (String topic : topics) {
+                        fetchTopicMetadata(template, topic, deadline);
+                    }
+                }
+            });
+            metadata.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Could not fetch the metadata of the topics {} within {}", topics, warmUpConfig.getTimeout());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not fetch the topic metadata", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Retries producers with a short max block time until the deadline is over.
+     */
+    private void fetchTopicMetadata(KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> template, String topic, long deadline) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                log.debug("Topic '{}' has {} partitions", topic, template.partitionsFor(topic).size());
+                return;
+            } catch (KafkaException e) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw e;
+                }
+                log.debug("Retrying to fetch the metadata of the topic '{}'", topic, e);
+            }
+        }
+    }
+
+    /**
+     * Serializes and deserializes synthetic request messages in all formats, so the serializers are
+     * loaded and compiled before the first request.
+     */
+    private void warmUpSerializers(long deadline) {
+        MicoCloudEventImpl<JsonNode> cloudEvent = newSyntheticEvent();
+        try {
+            for (int i = 0; i < warmUpConfig.getIterations() && System.nanoTime() - deadline < 0; i++) {
+                for (EnvelopeFormat format : EnvelopeFormat.values()) {
+                    format.decode(format.encode(cloudEvent));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize the synthetic message", e);
+        }
+    }
+
+    private MicoCloudEventImpl<JsonNode> newSyntheticEvent() {
+        HttpRequestWrapper httpRequestWrapper = new HttpRequestWrapper();
+        httpRequestWrapper.setHeader(Collections.singletonMap("content-type", Collections.singletonList("application/json")));
+        httpRequestWrapper.setBody("{\"warmUp\":true}");
+        List<RouteHistory> route = new ArrayList<>();
+        route.add(new RouteHistory(HttpToMessagingAdapter.ROUTE_HISTORY_TYPE_TOPIC, kafkaConfig.getOutputTopic(), EventClock.now()));
+        return new MicoCloudEventImpl<JsonNode>()
+            .setRandomId(idGenerator)
+            .setSource(HttpToMessagingAdapter.SOURCE_HTTP_TO_MESSAGING_ADAPTER)
+            .setType(HttpToMessagingAdapter.CLOUD_EVENT_ATTRIBUTE_MESSAGE_TYPE)
+            .setTime(EventClock.now())
+            .setExpiryDate(EventClock.now())
+            .setReturnTopic(kafkaConfig.getInputTopic())
+            .setRoute(route)
+            .setData(new ObjectMapper().valueToTree(httpRequestWrapper));
+    }
+
+    /**
+     * Waits until the consumer joined its group and got partitions assigned, so the responses
+     * of the first requests are received without waiting for a rebalance.
+     */
+    private void awaitPartitionAssignment(long deadline) {
+        try {
+            while (!isPartitionAssigned()) {
+                if (System.nanoTime() - deadline > 0) {
+                    log.warn("The consumer got no partitions assigned within {}", warmUpConfig.getTimeout());
+                    return;
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isPartitionAssigned() {
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (container.getAssignedPartitions() == null || container.getAssignedPartitions().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A step of the start with its duration.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StartupStep {
+
+        private final String name;
+        private final Instant start;
+        private final long durationMillis;
+    }
+}
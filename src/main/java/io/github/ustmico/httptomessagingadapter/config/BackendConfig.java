@@ -17,21 +17,67 @@
  * under the License.
  */
 
+
 package io.github.ustmico.httptomessagingadapter.config;
 
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 @Setter
 @Getter
+@Validated
 @ConfigurationProperties("backend")
 public class BackendConfig {
 
+    /**
+     * The url of the backend, used if no targets are configured.
+     */
     @NotBlank
     String url;
+
+    /**
+     * The backends the requests are distributed to. If empty, all requests go to {@link #url}.
+     */
+    @Valid
+    List<Target> targets = new ArrayList<>();
+
+    /**
+     * The name of a header whose value selects the backend, so that requests with the same value
+     * always go to the same backend. Requests without the header are distributed by weight.
+     */
+    String stickyHeader;
+
+    @Setter
+    @Getter
+    public static class Target {
+
+        /**
+         * The name of the backend for logs, defaults to the url.
+         */
+        private String name;
+
+        @NotBlank
+        private String url;
+
+        /**
+         * The share of the requests relative to the weights of the other targets.
+         */
+        @Min(1)
+        private int weight = 1;
+
+        /**
+         * The topic the requests for this backend are sent to, defaults to the output topic.
+         */
+        private String topic;
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the compression of HTTP bodies inside the messages.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("compression")
+public class CompressionConfig {
+
+    /**
+     * Compress request bodies with gzip before they are sent.
+     * The backend must decompress bodies with the {@code adapterBodyEncoding} attribute.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The minimum size of a body in bytes to be compressed.
+     */
+    @Min(0)
+    private int threshold = 8192;
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the connector of the embedded Tomcat.
+ * Values that are not set keep the Tomcat defaults. The connection limits are
+ * configured with the {@code server.tomcat} properties of Spring Boot.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("connector")
+public class ConnectorConfig {
+
+    /**
+     * Accept HTTP/2 over cleartext connections (h2c), both with prior knowledge and via upgrade.
+     */
+    private boolean http2 = false;
+
+    /**
+     * Use the NIO2 connector instead of the NIO connector.
+     */
+    private boolean nio2 = false;
+
+    /**
+     * The time an idle keep-alive connection is kept open.
+     */
+    private Duration keepAliveTimeout;
+
+    /**
+     * The maximum number of requests per keep-alive connection, -1 for no limit.
+     */
+    private Integer maxKeepAliveRequests;
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the headers that are copied into the messages and into the HTTP responses.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("header-filter")
+public class HeaderFilterConfig {
+
+    /**
+     * The names of the headers that are copied. If empty, all headers that are not denied are copied.
+     */
+    private List<String> allow = new ArrayList<>();
+
+    /**
+     * The names of the headers that are never copied.
+     */
+    private List<String> deny = new ArrayList<>();
+
+    /**
+     * The maximum size of a header (name and all values) in characters.
+     * Larger headers are dropped, 0 disables the limit.
+     */
+    @Min(0)
+    private int maxSize = 0;
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.constraints.Min;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the fire-and-forget requests and the local journal that buffers them
+ * while Kafka is unavailable.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("journal")
+public class JournalConfig {
+
+    /**
+     * Ant style patterns of the request paths that are answered with 202 Accepted
+     * as soon as they are published, without waiting for a response.
+     */
+    private List<String> fireAndForgetPaths = new ArrayList<>();
+
+    /**
+     * Buffer fire-and-forget requests in the journal if they can't be published.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The journal file.
+     */
+    private String path = System.getProperty("java.io.tmpdir") + "/http-to-messaging-adapter.journal";
+
+    /**
+     * The size of the journal file. If it is full, fire-and-forget requests are rejected with 503.
+     */
+    private DataSize size = DataSize.ofMegabytes(64);
+
+    /**
+     * The maximum time a fire-and-forget request waits for space in the producer buffer
+     * or the topic metadata before it is written to the journal.
+     */
+    private Duration maxBlock = Duration.ofMillis(100);
+
+    /**
+     * The interval in which the journal is replayed to Kafka.
+     */
+    private Duration drainInterval = Duration.ofSeconds(1);
+
+    /**
+     * The number of records that are published at once when the journal is replayed.
+     */
+    @Min(1)
+    private int replayBatchSize = 500;
+
+    /**
+     * New requests are appended to the journal to keep their order while it holds more records than this.
+     * Below it they are published directly again, so the journal empties even if requests keep coming in.
+     * The default 0 keeps the order of all requests.
+     */
+    @Min(0)
+    private int bypassThreshold = 0;
+}
@@ -19,12 +19,17 @@
 
 package io.github.ustmico.httptomessagingadapter.config;
 
+import io.github.ustmico.httptomessagingadapter.kafka.EnvelopeFormat;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Configuration of the kafka connection.
@@ -75,4 +80,35 @@ public class KafkaConfig {
 
     @NotBlank
     private String testMessageOutputTopic;
+
+    /**
+     * The wire format of the messages sent to topics without a specific format.
+     */
+    @NotNull
+    private EnvelopeFormat defaultFormat = EnvelopeFormat.JSON;
+
+    /**
+     * The wire format of the messages sent to specific topics.
+     * Received messages are decoded in the format they were sent in.
+     */
+    private Map<String, EnvelopeFormat> topicFormats = new HashMap<>();
+
+    /**
+     * The time window of responses that are replayed when partitions of the input topic are assigned,
+     * so responses sent during a rebalance or restart are not lost. Zero disables the replay.
+     */
+    @NotNull
+    private Duration replyReplayWindow = Duration.ZERO;
+
+    /**
+     * Publish responses without a waiting request to the dead letter topic.
+     * Only useful if a single adapter instance consumes the input topic.
+     */
+    private boolean deadLetterUnmatchedReplies = false;
+
+    /**
+     * Send a message of the type {@code httpEnvelopCancel} with the id of the request as correlation id
+     * to the output topic if a request is cancelled, e.g. because the client disconnected.
+     */
+    private boolean publishCancellations = false;
 }
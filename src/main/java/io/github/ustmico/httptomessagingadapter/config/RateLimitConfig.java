@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the rate limits and the fair share of the pending requests per tenant.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("rate-limit")
+public class RateLimitConfig {
+
+    /**
+     * The header that contains the tenant of a request.
+     */
+    private String tenantHeader;
+
+    /**
+     * The index of the path segment that contains the tenant if the request has no tenant header,
+     * e.g. 0 for {@code /tenant-a/orders}. -1 disables it.
+     */
+    @Min(-1)
+    private int tenantPathSegment = -1;
+
+    /**
+     * The requests per second shared by all tenants without their own limit. 0 disables the limit.
+     */
+    @Min(0)
+    private double rate = 0;
+
+    /**
+     * The number of requests the tenants without their own limit can send at once above the rate.
+     */
+    @Min(1)
+    private int burst = 1;
+
+    /**
+     * The maximum number of requests that wait for their responses. If it is reached,
+     * each tenant can use a share proportional to its weight. 0 disables the limit.
+     */
+    @Min(0)
+    private int maxPendingRequests = 0;
+
+    /**
+     * Tenants with their own limits and weights by name.
+     */
+    private Map<String, Tenant> tenants = new HashMap<>();
+
+    @Setter
+    @Getter
+    public static class Tenant {
+
+        /**
+         * The requests per second, 0 disables the limit.
+         */
+        @Min(0)
+        private double rate = 0;
+
+        @Min(1)
+        private int burst = 1;
+
+        /**
+         * The share of the pending requests relative to the other tenants.
+         */
+        @Min(1)
+        private int weight = 1;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the route history that is recorded in the messages.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("route-history")
+public class RouteHistoryConfig {
+
+    /**
+     * The maximum number of entries in the route history. If it is exceeded,
+     * the oldest entries after the first one are dropped. 0 disables the limit.
+     */
+    @Min(0)
+    private int maxEntries = 0;
+
+    /**
+     * The share of the routing steps after the first one that are recorded, between 0 and 1.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double sampleRate = 1.0;
+}
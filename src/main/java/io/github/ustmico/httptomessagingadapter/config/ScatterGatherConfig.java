@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the requests that are published to several topics at once
+ * and answered with the aggregated responses.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("scatter-gather")
+public class ScatterGatherConfig {
+
+    /**
+     * Ant style patterns of the request paths that are scattered, e.g. {@code /search/**}.
+     */
+    private List<String> paths = new ArrayList<>();
+
+    /**
+     * The topics a scattered request is published to.
+     */
+    private List<String> topics = new ArrayList<>();
+
+    /**
+     * When the aggregated response is returned.
+     */
+    private AggregationPolicy policy = AggregationPolicy.ALL;
+
+    /**
+     * The number of responses to wait for with the policy {@link AggregationPolicy#FIRST_N}.
+     */
+    @Min(1)
+    private int count = 1;
+
+    public enum AggregationPolicy {
+        /**
+         * Wait for the responses of all topics.
+         */
+        ALL,
+        /**
+         * Wait for the first {@code count} responses.
+         */
+        FIRST_N,
+        /**
+         * Wait for the responses of more than half of the topics.
+         */
+        QUORUM,
+        /**
+         * Wait until the request times out and return the responses received until then.
+         */
+        TIMEOUT;
+
+        /**
+         * @param topics the number of topics the request was published to
+         * @param count  the configured count for {@link #FIRST_N}
+         * @return the number of responses that complete the request
+         */
+        public int getRequiredResponses(int topics, int count) {
+            switch (this) {
+                case FIRST_N:
+                    return Math.min(count, topics);
+                case QUORUM:
+                    return topics / 2 + 1;
+                default:
+                    return topics;
+            }
+        }
+    }
+}
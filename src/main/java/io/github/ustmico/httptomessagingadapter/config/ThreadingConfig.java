@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the threads that wait for responses and consume Kafka messages.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("threading")
+public class ThreadingConfig {
+
+    /**
+     * Run the waiting HTTP requests and the Kafka listener on virtual threads.
+     * Only takes effect on a JDK that supports virtual threads (21+),
+     * otherwise the platform thread pool is used.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * The maximum number of platform threads waiting for responses
+     * if virtual threads are disabled or not available.
+     */
+    @Min(1)
+    private int requestPoolSize = 200;
+
+    /**
+     * The maximum number of requests that wait for a free platform thread.
+     * Further requests are rejected with 503.
+     */
+    @Min(0)
+    private int requestQueueCapacity = 100;
+
+    /**
+     * The number of threads that complete the waiting requests with their response messages.
+     */
+    @Min(1)
+    private int replyDispatchPoolSize = 4;
+
+    /**
+     * The maximum number of response messages waiting to be dispatched.
+     * If the queue is full, the Kafka consumer thread dispatches the response itself.
+     */
+    @Min(1)
+    private int replyDispatchQueueCapacity = 10000;
+}
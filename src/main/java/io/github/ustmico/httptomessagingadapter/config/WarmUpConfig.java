@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.Min;
+import java.time.Duration;
+
+/**
+ * Configuration of the warm-up after the start.
+ */
+@Component
+@Setter
+@Getter
+@ConfigurationProperties("warm-up")
+public class WarmUpConfig {
+
+    /**
+     * Warm up the connections and serializers before the adapter reports to be ready.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The number of synthetic messages that are serialized and deserialized in each format.
+     */
+    @Min(0)
+    private int iterations = 1000;
+
+    /**
+     * The maximum time of the whole warm-up, including the topic metadata and the partition assignment of the consumer.
+     */
+    private Duration timeout = Duration.ofSeconds(60);
+}
@@ -19,13 +19,12 @@
 
 package io.github.ustmico.httptomessagingadapter.kafka;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import io.cloudevents.json.Json;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -41,11 +40,12 @@ public class CloudEventDeserializer implements Deserializer<MicoCloudEventImpl<J
         if (data == null) {
             return null;
         }
+        EnvelopeFormat format = EnvelopeFormat.detect(data);
         try {
-            String message = new String(data, StandardCharsets.UTF_8);
-            log.debug("Trying to parse the message '{}'on topic '{}'", message, topic);
-            MicoCloudEventImpl<JsonNode> micoCloudEvent = Json.decodeValue(message, new TypeReference<MicoCloudEventImpl<JsonNode>>() {
-            });
+            if (log.isDebugEnabled() && format == EnvelopeFormat.JSON) {
+                log.debug("Trying to parse the message '{}'on topic '{}'", new String(data, StandardCharsets.UTF_8), topic);
+            }
+            MicoCloudEventImpl<JsonNode> micoCloudEvent = format.decode(data);
             log.debug("Deserialized micoCloudEvent '{}' on topic: '{}'", micoCloudEvent.toString(), topic);
 
             if (!micoCloudEvent.getData().isPresent()) {
@@ -53,8 +53,8 @@ public class CloudEventDeserializer implements Deserializer<MicoCloudEventImpl<J
                 log.debug("Received message does not include any data!");
             }
             return micoCloudEvent;
-        } catch (IllegalStateException e) {
-            throw new SerializationException("Could not create an CloudEvent message", e);
+        } catch (IOException e) {
+            throw new SerializationException("Could not create an CloudEvent message from " + format, e);
         }
     }
 
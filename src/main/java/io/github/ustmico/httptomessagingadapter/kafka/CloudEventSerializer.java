@@ -20,18 +20,42 @@
 package io.github.ustmico.httptomessagingadapter.kafka;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import io.cloudevents.json.Json;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Serializer;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 @Slf4j
 public class CloudEventSerializer implements Serializer<MicoCloudEventImpl<JsonNode>> {
+
+    /**
+     * Producer config with a map from topic to the {@link EnvelopeFormat} used on that topic.
+     */
+    public static final String TOPIC_FORMATS_CONFIG = "cloudevent.serializer.topic.formats";
+
+    /**
+     * Producer config with the {@link EnvelopeFormat} of topics that have no specific format.
+     */
+    public static final String DEFAULT_FORMAT_CONFIG = "cloudevent.serializer.default.format";
+
+    private Map<String, EnvelopeFormat> topicFormats = new HashMap<>();
+
+    private EnvelopeFormat defaultFormat = EnvelopeFormat.JSON;
+
     @Override
+    @SuppressWarnings("unchecked")
     public void configure(Map<String, ?> configs, boolean isKey) {
-
+        Object configuredTopicFormats = configs.get(TOPIC_FORMATS_CONFIG);
+        if (configuredTopicFormats instanceof Map) {
+            topicFormats = new HashMap<>((Map<String, EnvelopeFormat>) configuredTopicFormats);
+        }
+        Object configuredDefaultFormat = configs.get(DEFAULT_FORMAT_CONFIG);
+        if (configuredDefaultFormat instanceof EnvelopeFormat) {
+            defaultFormat = (EnvelopeFormat) configuredDefaultFormat;
+        }
     }
 
     @Override
@@ -39,10 +63,14 @@ public class CloudEventSerializer implements Serializer<MicoCloudEventImpl<JsonN
         if (data == null)
             return null;
         else {
-            String eventAsString = Json.encode(data);
-            byte[] eventAsBytes = eventAsString.getBytes(StandardCharsets.UTF_8);
-            log.debug("Serializing the event:'{}' to '{}' on topic '{}'", data, eventAsString, topic);
-            return eventAsBytes;
+            EnvelopeFormat format = topicFormats.getOrDefault(topic, defaultFormat);
+            try {
+                byte[] eventAsBytes = format.encode(data);
+                log.debug("Serializing the event:'{}' as {} with {} bytes on topic '{}'", data, format, eventAsBytes.length, topic);
+                return eventAsBytes;
+            } catch (IOException e) {
+                throw new SerializationException("Could not encode the CloudEvent message as " + format, e);
+            }
         }
     }
 
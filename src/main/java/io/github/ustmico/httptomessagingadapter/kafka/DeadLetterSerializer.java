@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Serializer for the invalid message and dead letter topics. Cloud events are serialized
+ * by the {@link CloudEventSerializer}, the original bytes of undecodable messages are passed through.
+ */
+public class DeadLetterSerializer implements Serializer<Object> {
+
+    private final CloudEventSerializer cloudEventSerializer = new CloudEventSerializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        cloudEventSerializer.configure(configs, isKey);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        return cloudEventSerializer.serialize(topic, (MicoCloudEventImpl<JsonNode>) data);
+    }
+
+    @Override
+    public void close() {
+        cloudEventSerializer.close();
+    }
+}
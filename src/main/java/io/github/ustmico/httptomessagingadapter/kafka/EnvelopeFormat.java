@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import io.cloudevents.json.Json;
+
+import java.io.IOException;
+
+/**
+ * The wire formats of the cloud events.
+ * <p>
+ * JSON is the default format. CBOR is a compact binary format that carries binary data,
+ * like the HTTP body, as raw bytes instead of Base64. CBOR messages start with the CBOR
+ * self-describe tag, so the deserializer detects the format of a message by its first byte.
+ */
+public enum EnvelopeFormat {
+
+    // A copy, so the shared mapper of the cloudevents library keeps its own date handling
+    JSON(Json.MAPPER.copy().registerModule(new FastDateTimeModule())),
+    CBOR(createCborMapper());
+
+    private static final TypeReference<MicoCloudEventImpl<JsonNode>> CLOUD_EVENT_TYPE = new TypeReference<MicoCloudEventImpl<JsonNode>>() {
+    };
+    private static final byte CBOR_SELF_DESCRIBE_TAG_START = (byte) 0xD9;
+    private static final int CBOR_MAJOR_TYPE_MASK = 0xE0;
+    private static final int CBOR_MAJOR_TYPE_MAP = 0xA0;
+
+    private final ObjectMapper mapper;
+
+    EnvelopeFormat(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public byte[] encode(MicoCloudEventImpl<JsonNode> cloudEvent) throws IOException {
+        return mapper.writeValueAsBytes(cloudEvent);
+    }
+
+    public MicoCloudEventImpl<JsonNode> decode(byte[] data) throws IOException {
+        return mapper.readValue(data, CLOUD_EVENT_TYPE);
+    }
+
+    /**
+     * Detects the format of an encoded cloud event.
+     *
+     * @param data the encoded cloud event
+     * @return {@link #CBOR} if the data starts like a CBOR map, otherwise {@link #JSON}
+     */
+    public static EnvelopeFormat detect(byte[] data) {
+        if (data.length > 0 && (data[0] == CBOR_SELF_DESCRIBE_TAG_START || (data[0] & CBOR_MAJOR_TYPE_MASK) == CBOR_MAJOR_TYPE_MAP)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    /**
+     * Creates a CBOR mapper with the same modules as the JSON mapper.
+     */
+    private static ObjectMapper createCborMapper() {
+        CBORFactory cborFactory = new CBORFactory();
+        cborFactory.enable(CBORGenerator.Feature.WRITE_TYPE_HEADER);
+        ObjectMapper cborMapper = new ObjectMapper(cborFactory);
+        cborMapper.registerModule(new Jdk8Module());
+        cborMapper.registerModule(new FastDateTimeModule());
+        return cborMapper;
+    }
+}
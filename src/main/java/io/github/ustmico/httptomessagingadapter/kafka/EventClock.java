@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+
+/**
+ * The clock for the timestamps of the cloud events. It always uses UTC, so creating
+ * a timestamp doesn't look up the default time zone and its rules.
+ */
+public final class EventClock {
+
+    private static final Clock CLOCK = Clock.systemUTC();
+
+    private EventClock() {
+    }
+
+    /**
+     * @return the current time in UTC
+     */
+    public static ZonedDateTime now() {
+        return ZonedDateTime.now(CLOCK);
+    }
+
+    /**
+     * @return the current time in milliseconds since the epoch
+     */
+    public static long millis() {
+        return CLOCK.millis();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+
+/**
+ * Filters cloud events whose expiry date has passed, so the caller that is waiting for them already gave up.
+ * Can be set on a listener container factory of any service with
+ * {@code factory.setRecordFilterStrategy(new ExpiredEventFilter<>())}.
+ * Records without a value (e.g. messages that could not be decoded) are never filtered.
+ *
+ * @param <K> the key type
+ * @param <V> the cloud event type
+ */
+public class ExpiredEventFilter<K, V extends MicoCloudEventImpl<?>> implements RecordFilterStrategy<K, V> {
+
+    @Override
+    public boolean filter(ConsumerRecord<K, V> consumerRecord) {
+        return consumerRecord.value() != null && isExpired(consumerRecord.value());
+    }
+
+    /**
+     * Checks if the expiry date of a cloud event has passed.
+     *
+     * @param cloudEvent the cloud event
+     * @return {@code true} if the event has an expiry date in the past
+     */
+    public static boolean isExpired(MicoCloudEventImpl<?> cloudEvent) {
+        return cloudEvent.getExpiryDate().map(expiryDate -> expiryDate.toInstant().toEpochMilli() < EventClock.millis()).orElse(false);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializes and parses the {@link ZonedDateTime} timestamps of the cloud events (time, expiry date
+ * and route history) in the same ISO-8601 format as the cloud events library, but without going
+ * through a {@link DateTimeFormatter}. Uncommon values, like years with more than four digits,
+ * fall back to {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}.
+ */
+public class FastDateTimeModule extends SimpleModule {
+
+    public FastDateTimeModule() {
+        super(FastDateTimeModule.class.getSimpleName());
+        addSerializer(ZonedDateTime.class, new Serializer());
+        addDeserializer(ZonedDateTime.class, new Deserializer());
+    }
+
+    /**
+     * Formats a timestamp like {@code 2019-10-01T12:30:45.123Z} or {@code 2019-10-01T12:30:45+02:00}.
+     *
+     * @param dateTime
+     * @return the ISO-8601 string with the offset of the timestamp
+     */
+    public static String format(ZonedDateTime dateTime) {
+        int year = dateTime.getYear();
+        int offsetSeconds = dateTime.getOffset().getTotalSeconds();
+        if (year < 0 || year > 9999 || offsetSeconds % 60 != 0) {
+            return dateTime.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        char[] chars = new char[35];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, dateTime.getMonthValue(), 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, dateTime.getDayOfMonth(), 2);
+        chars[10] = 'T';
+        writeDigits(chars, 11, dateTime.getHour(), 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, dateTime.getMinute(), 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, dateTime.getSecond(), 2);
+        int length = 19;
+        int nanos = dateTime.getNano();
+        if (nanos > 0) {
+            chars[length++] = '.';
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+            writeDigits(chars, length, nanos, digits);
+            length += digits;
+        }
+        if (offsetSeconds == 0) {
+            chars[length++] = 'Z';
+        } else {
+            int offsetMinutes = Math.abs(offsetSeconds) / 60;
+            chars[length] = offsetSeconds < 0 ? '-' : '+';
+            writeDigits(chars, length + 1, offsetMinutes / 60, 2);
+            chars[length + 3] = ':';
+            writeDigits(chars, length + 4, offsetMinutes % 60, 2);
+            length += 6;
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Parses a timestamp in the ISO-8601 format with an offset.
+     *
+     * @param text
+     * @return the timestamp with the parsed offset
+     * @throws DateTimeException if the text is not a valid timestamp
+     */
+    public static ZonedDateTime parse(String text) {
+        int length = text.length();
+        if (length < 20 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+            || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        int year = readDigits(text, 0, 4);
+        int month = readDigits(text, 5, 2);
+        int day = readDigits(text, 8, 2);
+        int hour = readDigits(text, 11, 2);
+        int minute = readDigits(text, 14, 2);
+        int second = readDigits(text, 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        int position = 19;
+        int nanos = 0;
+        if (text.charAt(position) == '.') {
+            position++;
+            int digits = 0;
+            while (position < length && Character.isDigit(text.charAt(position)) && digits < 9) {
+                nanos = nanos * 10 + (text.charAt(position++) - '0');
+                digits++;
+            }
+            if (digits == 0 || (position < length && Character.isDigit(text.charAt(position)))) {
+                return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            }
+            for (; digits < 9; digits++) {
+                nanos *= 10;
+            }
+        }
+        ZoneOffset offset;
+        if (position == length - 1 && text.charAt(position) == 'Z') {
+            offset = ZoneOffset.UTC;
+        } else if (position == length - 6 && (text.charAt(position) == '+' || text.charAt(position) == '-') && text.charAt(position + 3) == ':') {
+            int offsetHours = readDigits(text, position + 1, 2);
+            int offsetMinutes = readDigits(text, position + 4, 2);
+            if ((offsetHours | offsetMinutes) < 0) {
+                return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            }
+            int sign = text.charAt(position) == '-' ? -1 : 1;
+            offset = ZoneOffset.ofHoursMinutes(sign * offsetHours, sign * offsetMinutes);
+        } else {
+            return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        return ZonedDateTime.of(LocalDateTime.of(year, month, day, hour, minute, second, nanos), offset);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * @return the value of the digits or -1 if there is a character that is not a digit
+     */
+    private static int readDigits(String text, int offset, int digits) {
+        int value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static class Serializer extends StdSerializer<ZonedDateTime> {
+
+        Serializer() {
+            super(ZonedDateTime.class);
+        }
+
+        @Override
+        public void serialize(ZonedDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(format(value));
+        }
+    }
+
+    static class Deserializer extends StdDeserializer<ZonedDateTime> {
+
+        Deserializer() {
+            super(ZonedDateTime.class);
+        }
+
+        @Override
+        public ZonedDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String text = parser.getText();
+            try {
+                return parse(text);
+            } catch (DateTimeException e) {
+                return (ZonedDateTime) context.handleWeirdStringValue(ZonedDateTime.class, text, "could not parse: %s", e.getMessage());
+            }
+        }
+    }
+}
@@ -19,14 +19,20 @@
 
 package io.github.ustmico.httptomessagingadapter.kafka;
 
+import io.github.ustmico.httptomessagingadapter.AsyncRequestConfig;
 import io.github.ustmico.httptomessagingadapter.MessageListener;
 import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.github.ustmico.httptomessagingadapter.config.ThreadingConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.KafkaListenerContainerFactory;
@@ -36,9 +42,11 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer2;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @EnableKafka
 @Configuration
@@ -48,9 +56,15 @@ public class KafkaConsumerConfig {
     @Autowired
     private KafkaConfig kafkaConfig;
 
+    @Autowired
+    private ThreadingConfig threadingConfig;
+
     @Autowired
     private KafkaTemplate<Object, Object> kafkaTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
     public Map<String, Object> consumerConfigs() {
         Map<String, Object> properties = new HashMap<>();
@@ -66,6 +80,10 @@ public class KafkaConsumerConfig {
         properties.put(ErrorHandlingDeserializer2.VALUE_DESERIALIZER_CLASS,
             CloudEventDeserializer.class);
         properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        // Let the container commit the offsets after the messages are processed
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.METRIC_REPORTER_CLASSES_CONFIG, MicrometerMetricsReporter.class.getName());
+        MicrometerMetricsReporter.setMeterRegistry(meterRegistry);
 
         return properties;
     }
@@ -80,11 +98,57 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, MicoCloudEventImpl> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
-        factory.setErrorHandler(new SeekToCurrentErrorHandler(1));
-        //TODO Add DeadLetterPublishingRecoverer later
+        factory.setErrorHandler(new SeekToCurrentErrorHandler(replyRecoverer(), 1));
+        // Late responses are dropped before the listener looks for their request
+        factory.setRecordFilterStrategy(new ExpiredEventFilter<>());
+        if (!kafkaConfig.getReplyReplayWindow().isZero()) {
+            factory.getContainerProperties().setConsumerRebalanceListener(replyReplayRebalanceListener());
+        }
+        if (threadingConfig.isVirtualThreads()) {
+            factory.getContainerProperties().setConsumerTaskExecutor(consumerTaskExecutor());
+        }
         return factory;
     }
 
+    /**
+     * The virtual threads the Kafka listener runs on, a bean so they are shut down with the context.
+     * Falls back to the platform threads of the container if the JVM has no virtual threads.
+     */
+    @Bean
+    @ConditionalOnProperty("threading.virtual-threads")
+    public AsyncListenableTaskExecutor consumerTaskExecutor() {
+        return AsyncRequestConfig.newVirtualThreadTaskExecutor()
+            .<AsyncListenableTaskExecutor>map(executor -> executor)
+            .orElseGet(() -> new SimpleAsyncTaskExecutor("consumer-"));
+    }
+
+    @Bean
+    public ReplyReplayRebalanceListener replyReplayRebalanceListener() {
+        return new ReplyReplayRebalanceListener(kafkaConfig.getReplyReplayWindow());
+    }
+
+    @Bean
+    public ReplyRecoverer replyRecoverer() {
+        return new ReplyRecoverer(kafkaTemplate, kafkaConfig, meterRegistry);
+    }
+
+    /**
+     * The executor that completes the waiting requests, so the consumer thread only
+     * decodes and enqueues the responses. A full queue slows down the consumer instead of dropping responses.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor replyDispatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threadingConfig.getReplyDispatchPoolSize());
+        executor.setMaxPoolSize(threadingConfig.getReplyDispatchPoolSize());
+        executor.setQueueCapacity(threadingConfig.getReplyDispatchQueueCapacity());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("reply-dispatch-");
+        executor.initialize();
+        meterRegistry.gauge("adapter.reply.dispatch.queue.size", executor, e -> e.getThreadPoolExecutor().getQueue().size());
+        return executor;
+    }
+
     @Bean
     public MessageListener receiver() {
         return new MessageListener();
@@ -20,12 +20,16 @@
 package io.github.ustmico.httptomessagingadapter.kafka;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.IdGeneratorConfig;
+import io.github.ustmico.httptomessagingadapter.config.JournalConfig;
 import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -36,10 +40,23 @@ import java.util.Map;
 @Configuration
 public class KafkaProducerConfig {
 
+    protected static final int DEAD_LETTER_LINGER_MS = 100;
+    protected static final int DEAD_LETTER_MAX_BLOCK_MS = 1000;
+
     @Autowired
     private KafkaConfig kafkaConfig;
 
+    @Autowired
+    private IdGeneratorConfig idGeneratorConfig;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
+    @Primary
     public ProducerFactory<String, MicoCloudEventImpl<JsonNode>> producerFactory() {
         Map<String, Object> configProps = putConfig();
         return new DefaultKafkaProducerFactory<>(configProps);
@@ -48,6 +65,20 @@ public class KafkaProducerConfig {
     @Bean
     public ProducerFactory<Object, Object> invalidMessageProducerFactory() {
         Map<String, Object> configProps = putConfig();
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, DeadLetterSerializer.class);
+        // Batch the recovered messages and never block the consumer thread for long
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, DEAD_LETTER_LINGER_MS);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, DEAD_LETTER_MAX_BLOCK_MS);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public ProducerFactory<String, MicoCloudEventImpl<JsonNode>> fireAndForgetProducerFactory() {
+        Map<String, Object> configProps = putConfig();
+        if (journalConfig.isEnabled()) {
+            // Fall back to the journal instead of blocking the request while Kafka is unavailable
+            configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, (int) journalConfig.getMaxBlock().toMillis());
+        }
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -61,10 +92,15 @@ public class KafkaProducerConfig {
         configProps.put(
             ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
             CloudEventSerializer.class);
+        configProps.put(CloudEventSerializer.DEFAULT_FORMAT_CONFIG, kafkaConfig.getDefaultFormat());
+        configProps.put(CloudEventSerializer.TOPIC_FORMATS_CONFIG, kafkaConfig.getTopicFormats());
+        configProps.put(ProducerConfig.METRIC_REPORTER_CLASSES_CONFIG, MicrometerMetricsReporter.class.getName());
+        MicrometerMetricsReporter.setMeterRegistry(meterRegistry);
         return configProps;
     }
 
     @Bean
+    @Primary
     public KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
@@ -73,4 +109,17 @@ public class KafkaProducerConfig {
     public KafkaTemplate<Object, Object> invalidMessageTemplate() {
         return new KafkaTemplate<>(invalidMessageProducerFactory());
     }
+
+    @Bean
+    public KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> fireAndForgetTemplate() {
+        return new KafkaTemplate<>(fireAndForgetProducerFactory());
+    }
+
+    @Bean
+    public IdGenerator idGenerator() {
+        if (idGeneratorConfig.getNodeId() == null) {
+            return new TimeOrderedIdGenerator();
+        }
+        return new TimeOrderedIdGenerator(idGeneratorConfig.getNodeId());
+    }
 }
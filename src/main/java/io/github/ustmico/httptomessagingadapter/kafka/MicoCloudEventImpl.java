@@ -128,6 +128,11 @@ public class MicoCloudEventImpl<T> implements CloudEvent<T> {
         return this;
     }
 
+    public MicoCloudEventImpl<T> setRandomId(IdGenerator idGenerator) {
+        id = idGenerator.nextId();
+        return this;
+    }
+
 
     public MicoCloudEventImpl<T> setBaseCloudEvent(MicoCloudEventImpl<T> cloudEvent) {
         id = cloudEvent.getId();
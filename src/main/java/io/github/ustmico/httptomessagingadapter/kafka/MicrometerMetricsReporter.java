@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricsReporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registers the metrics of the Kafka clients as Micrometer gauges as soon as the clients create them,
+ * including the per topic and per partition metrics. Set it with
+ * {@code metric.reporters} and set the registry with {@link #setMeterRegistry(MeterRegistry)} before the clients
+ * are created, the Kafka clients create the reporter themselves and only pass their own configuration.
+ * A metric {@code record-queue-time-avg} of the group {@code producer-metrics} becomes
+ * {@code adapter.kafka.producer.record.queue.time.avg} with the tags of the metric.
+ * <p>
+ * Kafka uses the same metric name on several levels, e.g. {@code records-lag-max} per client and per partition.
+ * The tags other than {@code client-id} become part of the meter name, so every meter name has one set of tag keys:
+ * {@code adapter.kafka.consumer.fetch.manager.records.lag.max} with the tag {@code client-id} and
+ * {@code adapter.kafka.consumer.fetch.manager.topic.partition.records.lag.max} with the tags
+ * {@code client-id}, {@code topic} and {@code partition}.
+ */
+@Slf4j
+public class MicrometerMetricsReporter implements MetricsReporter {
+
+    protected static final String METRIC_PREFIX = "adapter.kafka.";
+
+    private static final String CLIENT_ID_TAG = "client-id";
+
+    /**
+     * The order of the tag keys in the meter names, from the wider to the narrower scope.
+     */
+    private static final List<String> SCOPE_TAGS = Arrays.asList("topic", "partition");
+
+    private static volatile MeterRegistry defaultMeterRegistry;
+
+    /**
+     * The groups that are registered, the per broker and app info groups are left out.
+     */
+    private static final Set<String> METRIC_GROUPS = new HashSet<>(Arrays.asList(
+        "producer-metrics", "producer-topic-metrics",
+        "consumer-metrics", "consumer-fetch-manager-metrics", "consumer-coordinator-metrics"));
+
+    private final ConcurrentMap<MetricName, Meter> meters = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Sets the registry of the reporters of the Kafka clients that are created from now on.
+     *
+     * @param meterRegistry
+     */
+    public static void setMeterRegistry(MeterRegistry meterRegistry) {
+        defaultMeterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        meterRegistry = defaultMeterRegistry;
+        if (meterRegistry == null) {
+            log.warn("No meter registry configured, the Kafka client metrics are not registered");
+        }
+    }
+
+    @Override
+    public void init(List<KafkaMetric> metrics) {
+        metrics.forEach(this::metricChange);
+    }
+
+    @Override
+    public void metricChange(KafkaMetric metric) {
+        MetricName metricName = metric.metricName();
+        if (meterRegistry == null || !METRIC_GROUPS.contains(metricName.group())) {
+            return;
+        }
+        Meter previous = meters.remove(metricName);
+        if (previous != null) {
+            meterRegistry.remove(previous);
+        }
+        Gauge gauge = Gauge.builder(getMeterName(metricName), metric, MicrometerMetricsReporter::toDouble)
+            .tags(getTags(metricName))
+            .description(metricName.description())
+            .strongReference(true)
+            .register(meterRegistry);
+        meters.put(metricName, gauge);
+    }
+
+    @Override
+    public void metricRemoval(KafkaMetric metric) {
+        Meter meter = meters.remove(metric.metricName());
+        if (meter != null && meterRegistry != null) {
+            meterRegistry.remove(meter);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (meterRegistry != null) {
+            meters.values().forEach(meterRegistry::remove);
+        }
+        meters.clear();
+    }
+
+    /**
+     * @param metricName
+     * @return the name of the meter with the tag keys other than {@code client-id},
+     * e.g. {@code adapter.kafka.consumer.fetch.manager.topic.partition.records.lag}
+     */
+    public static String getMeterName(MetricName metricName) {
+        String group = metricName.group().endsWith("-metrics")
+            ? metricName.group().substring(0, metricName.group().length() - "-metrics".length())
+            : metricName.group();
+        StringBuilder meterName = new StringBuilder(METRIC_PREFIX).append(group.replace('-', '.'));
+        List<String> tagKeys = new ArrayList<>(metricName.tags().keySet());
+        tagKeys.sort(Comparator.comparing((String tagKey) -> !SCOPE_TAGS.contains(tagKey))
+            .thenComparing(SCOPE_TAGS::indexOf)
+            .thenComparing(Comparator.naturalOrder()));
+        for (String tagKey : tagKeys) {
+            // The topic of the producer-topic-metrics is already in the name of the group
+            if (!tagKey.equals(CLIENT_ID_TAG) && !group.endsWith("-" + tagKey)) {
+                meterName.append('.').append(tagKey.replace('-', '.'));
+            }
+        }
+        return meterName.append('.').append(metricName.name().replace('-', '.')).toString();
+    }
+
+    private static Tags getTags(MetricName metricName) {
+        List<Tag> tags = new ArrayList<>(metricName.tags().size());
+        metricName.tags().forEach((key, value) -> tags.add(Tag.of(key, value)));
+        return Tags.of(tags);
+    }
+
+    /**
+     * @return the value of the metric or NaN if it is not a number
+     */
+    public static double toDouble(KafkaMetric metric) {
+        Object value = metric.metricValue();
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+/**
+ * Publishes response messages that can't be processed, so they don't block the response topic.
+ * <p>
+ * Messages that can't be decoded are published with their original bytes to the invalid message topic,
+ * messages that failed in the listener to the dead letter topic. Responses without a waiting request
+ * can be published to the dead letter topic as well. The messages are sent asynchronously and batched
+ * by the producer, the consumer thread does not wait for the broker.
+ */
+@Slf4j
+public class ReplyRecoverer extends DeadLetterPublishingRecoverer {
+
+    protected static final String METRIC_RECOVERED = "adapter.replies.recovered";
+    protected static final String METRIC_TAG_REASON = "reason";
+
+    private final KafkaTemplate<Object, Object> template;
+    private final String deadLetterTopic;
+    private final Counter undecodable;
+    private final Counter failed;
+    private final Counter unmatched;
+
+    public ReplyRecoverer(KafkaTemplate<Object, Object> template, KafkaConfig kafkaConfig, MeterRegistry meterRegistry) {
+        super(template, (record, exception) -> new TopicPartition(
+            findDeserializationException(exception) != null ? kafkaConfig.getInvalidMessageTopic() : kafkaConfig.getDeadLetterTopic(), -1));
+        this.template = template;
+        this.deadLetterTopic = kafkaConfig.getDeadLetterTopic();
+        this.undecodable = meterRegistry.counter(METRIC_RECOVERED, METRIC_TAG_REASON, "undecodable");
+        this.failed = meterRegistry.counter(METRIC_RECOVERED, METRIC_TAG_REASON, "failed");
+        this.unmatched = meterRegistry.counter(METRIC_RECOVERED, METRIC_TAG_REASON, "unmatched");
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        DeserializationException deserializationException = findDeserializationException(exception);
+        if (deserializationException != null) {
+            log.warn("Publishing the undecodable message from '{}' at offset {} to the invalid message topic", record.topic(), record.offset());
+            undecodable.increment();
+            if (record.value() == null && deserializationException.getData() != null) {
+                // publish the original bytes instead of an empty value
+                super.accept(new ConsumerRecord<>(record.topic(), record.partition(), record.offset(), record.timestamp(),
+                    record.timestampType(), null, record.serializedKeySize(), record.serializedValueSize(),
+                    record.key(), deserializationException.getData(), record.headers()), exception);
+                return;
+            }
+        } else {
+            log.warn("Publishing the failed message from '{}' at offset {} to the dead letter topic", record.topic(), record.offset(), exception);
+            failed.increment();
+        }
+        super.accept(record, exception);
+    }
+
+    /**
+     * Publishes a response without a waiting request to the dead letter topic.
+     *
+     * @param cloudEvent the response message
+     */
+    public void publishUnmatched(MicoCloudEventImpl<JsonNode> cloudEvent) {
+        unmatched.increment();
+        template.send(deadLetterTopic, cloudEvent).addCallback(
+            result -> log.debug("Published the unmatched response '{}' to the dead letter topic", cloudEvent.getId()),
+            e -> log.error("Could not publish the unmatched response '{}' to the dead letter topic", cloudEvent.getId(), e));
+    }
+
+    private static DeserializationException findDeserializationException(Throwable exception) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof DeserializationException) {
+                return (DeserializationException) cause;
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seeks newly assigned partitions of the response topic back to the start of a short time window.
+ * Responses that were sent while the partitions were unassigned, e.g. during a rolling deployment,
+ * are replayed and can still complete their waiting requests. Responses without a waiting request are ignored.
+ */
+@Slf4j
+public class ReplyReplayRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final Duration replayWindow;
+
+    /**
+     * The position of each partition before it was seeked back. Records before it are replayed.
+     */
+    private final Map<TopicPartition, Long> replayEndOffsets = new ConcurrentHashMap<>();
+
+    public ReplyReplayRebalanceListener(Duration replayWindow) {
+        this.replayWindow = replayWindow;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        partitions.forEach(replayEndOffsets::remove);
+        long replayStart = System.currentTimeMillis() - replayWindow.toMillis();
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            timestamps.put(partition, replayStart);
+        }
+        Map<TopicPartition, OffsetAndTimestamp> replayOffsets = consumer.offsetsForTimes(timestamps);
+        for (Map.Entry<TopicPartition, OffsetAndTimestamp> entry : replayOffsets.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            long position = consumer.position(entry.getKey());
+            if (entry.getValue().offset() < position) {
+                log.info("Replaying {} messages of the last {} on partition '{}'", position - entry.getValue().offset(), replayWindow, entry.getKey());
+                consumer.seek(entry.getKey(), entry.getValue().offset());
+                replayEndOffsets.put(entry.getKey(), position);
+            }
+        }
+    }
+
+    /**
+     * @param topic
+     * @param partition
+     * @param offset
+     * @return true if the record was consumed before and is only read again because of the replay window
+     */
+    public boolean isReplayed(String topic, int partition, long offset) {
+        Long replayEndOffset = replayEndOffsets.get(new TopicPartition(topic, partition));
+        return replayEndOffset != null && offset < replayEndOffset;
+    }
+}
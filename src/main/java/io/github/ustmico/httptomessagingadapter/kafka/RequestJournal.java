@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.JournalConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.ApiException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A journal in a memory-mapped file that buffers fire-and-forget request messages
+ * while they can't be published, and replays them in order once Kafka is available again.
+ * <p>
+ * The file is a ring buffer. It starts with a header of the write position and the read position,
+ * followed by the records. Each record consists of its length, the topic and the message encoded as CBOR.
+ * A record that doesn't fit before the end of the file is written at its beginning, and a wrap marker is
+ * left at the old write position. A record becomes visible when the write position is moved behind it,
+ * which is a single header value, so the journal survives a crash of the process. The number of pending
+ * records is counted from the file when it is opened.
+ * <p>
+ * The records are replayed in batches. A record that fails with a retriable error stops the replay until
+ * the next interval, a record that can never be published is skipped. The replay resumes at the first failed
+ * record, the records behind it that were already published are remembered and not sent again. Records are
+ * published at least once, a record can be published again if the adapter stops before it is acknowledged.
+ */
+@Slf4j
+@Component
+public class RequestJournal {
+
+    private static final int WRITE_POSITION_OFFSET = 0;
+    private static final int READ_POSITION_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int LENGTH_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = LENGTH_SIZE + 2;
+
+    /**
+     * Marks that the next record starts at the beginning of the file.
+     */
+    private static final int WRAP_MARKER = -1;
+    private static final long REPLAY_BATCH_TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    @Qualifier("fireAndForgetTemplate")
+    private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * The number of records between the read and the write position, guarded by this journal.
+     */
+    private long pendingRecords;
+
+    private ScheduledExecutorService drainer;
+
+    private Counter appendedRecords;
+
+    private Counter replayedRecords;
+
+    private Counter skippedRecords;
+
+    /**
+     * The positions behind the records that were published after a failed record of their batch,
+     * only used by the drain thread.
+     */
+    private final Set<Integer> publishedAhead = new HashSet<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!journalConfig.isEnabled()) {
+            return;
+        }
+        Path path = Paths.get(journalConfig.getPath());
+        boolean exists = Files.exists(path) && Files.size(path) > HEADER_SIZE;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // The positions of an existing journal are only valid for its own size
+        long size = exists ? channel.size() : journalConfig.getSize().toBytes();
+        if (exists && size != journalConfig.getSize().toBytes()) {
+            log.info("Keeping the size of {} bytes of the existing journal '{}'", size, path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+        synchronized (this) {
+            if (exists) {
+                recover();
+            } else {
+                buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+                buffer.putLong(WRITE_POSITION_OFFSET, HEADER_SIZE);
+            }
+        }
+        log.info("Opened the journal '{}' with {} pending records", path, getPendingRecords());
+
+        appendedRecords = meterRegistry.counter("adapter.journal.records", "operation", "appended");
+        replayedRecords = meterRegistry.counter("adapter.journal.records", "operation", "replayed");
+        skippedRecords = meterRegistry.counter("adapter.journal.records", "operation", "skipped");
+        meterRegistry.gauge("adapter.journal.pending", this, RequestJournal::getPendingRecords);
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = journalConfig.getDrainInterval().toMillis();
+        drainer.scheduleWithFixedDelay(this::drain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (drainer != null) {
+            drainer.shutdown();
+        }
+        synchronized (this) {
+            if (buffer != null) {
+                buffer.force();
+                channel.close();
+                buffer = null;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return journalConfig.isEnabled();
+    }
+
+    /**
+     * @return the number of records that are not replayed yet
+     */
+    public synchronized long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * New requests are queued behind the journal while it holds more than the bypass threshold of records.
+     * Below it, they are published directly again, so the journal empties even under load.
+     *
+     * @return true if new requests have to be appended to the journal to keep their order
+     */
+    public synchronized boolean isBacklogged() {
+        return pendingRecords > journalConfig.getBypassThreshold();
+    }
+
+    /**
+     * Appends a message to the journal.
+     *
+     * @param topic      the topic the message is replayed to
+     * @param cloudEvent the message
+     * @return {@code false} if the journal is disabled or full
+     */
+    public boolean append(String topic, MicoCloudEventImpl<JsonNode> cloudEvent) {
+        if (!journalConfig.isEnabled()) {
+            return false;
+        }
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        byte[] payload;
+        try {
+            payload = EnvelopeFormat.CBOR.encode(cloudEvent);
+        } catch (IOException e) {
+            log.error("Could not encode the cloud event '{}' for the journal", cloudEvent.getId(), e);
+            return false;
+        }
+        int recordSize = RECORD_HEADER_SIZE + topicBytes.length + payload.length;
+        synchronized (this) {
+            if (buffer == null) {
+                return false;
+            }
+            int writePosition = (int) buffer.getLong(WRITE_POSITION_OFFSET);
+            int position = findSpace(writePosition, (int) buffer.getLong(READ_POSITION_OFFSET), recordSize);
+            if (position < 0) {
+                log.warn("The journal is full, rejecting the cloud event '{}'", cloudEvent.getId());
+                return false;
+            }
+            buffer.putInt(position, recordSize - LENGTH_SIZE);
+            buffer.putShort(position + LENGTH_SIZE, (short) topicBytes.length);
+            put(position + RECORD_HEADER_SIZE, topicBytes);
+            put(position + RECORD_HEADER_SIZE + topicBytes.length, payload);
+            if (position != writePosition && buffer.capacity() - writePosition >= LENGTH_SIZE) {
+                buffer.putInt(writePosition, WRAP_MARKER);
+            }
+            // The record is complete, make it visible
+            buffer.putLong(WRITE_POSITION_OFFSET, position + recordSize);
+            pendingRecords++;
+        }
+        appendedRecords.increment();
+        log.debug("Wrote the cloud event '{}' for the topic '{}' to the journal", cloudEvent.getId(), topic);
+        return true;
+    }
+
+    /**
+     * Replays the pending records in batches until the journal is empty or a record can't be published yet.
+     */
+    void drain() {
+        try {
+            while (replayBatch()) {
+                log.debug("Replayed a batch of the journal, {} records are pending", getPendingRecords());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stopped replaying the journal, retrying in {}", journalConfig.getDrainInterval(), e);
+        }
+    }
+
+    /**
+     * Publishes a batch of records at once and waits for all of them.
+     *
+     * @return true if the whole batch was replayed and there can be more records
+     */
+    private boolean replayBatch() {
+        List<JournalRecord> batch = readBatch();
+        if (batch.isEmpty()) {
+            return false;
+        }
+        List<ListenableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (JournalRecord record : batch) {
+            sends.add(publishedAhead.contains(record.nextPosition) ? null : send(record));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(REPLAY_BATCH_TIMEOUT_SECONDS);
+        int done = 0;
+        boolean failed = false;
+        for (int i = 0; i < batch.size(); i++) {
+            JournalRecord record = batch.get(i);
+            Throwable failure = sends.get(i) == null ? null : await(sends.get(i), record, deadline);
+            if (failure != null) {
+                if (!failed) {
+                    log.info("Could not replay a record of the journal to the topic '{}', retrying in {}: {}",
+                        record.topic, journalConfig.getDrainInterval(), failure.toString());
+                }
+                failed = true;
+            } else if (failed) {
+                publishedAhead.add(record.nextPosition);
+            } else {
+                publishedAhead.remove(record.nextPosition);
+                done++;
+            }
+        }
+        if (done > 0) {
+            acknowledge(batch.get(done - 1).nextPosition, done);
+        }
+        return done == batch.size();
+    }
+
+    /**
+     * Waits for the replay of a record.
+     *
+     * @return null if the record was published or skipped, otherwise the reason it has to be replayed again
+     */
+    private Throwable await(ListenableFuture<?> send, JournalRecord record, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            replayedRecords.increment();
+            return null;
+        } catch (ExecutionException e) {
+            if (!isPoison(e.getCause())) {
+                return e.getCause();
+            }
+            log.warn("Skipping a record of the journal for the topic '{}' that can't be published", record.topic, e.getCause());
+            skippedRecords.increment();
+            return null;
+        } catch (TimeoutException e) {
+            return new TimeoutException("The replay was not acknowledged within " + REPLAY_BATCH_TIMEOUT_SECONDS + " s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private ListenableFuture<?> send(JournalRecord record) {
+        try {
+            return kafkaTemplate.send(record.topic, EnvelopeFormat.CBOR.decode(record.payload));
+        } catch (IOException | RuntimeException e) {
+            SettableListenableFuture<Object> failure = new SettableListenableFuture<>();
+            failure.setException(e);
+            return failure;
+        }
+    }
+
+    /**
+     * @param cause the cause of a failed replay
+     * @return true if the record can never be published, e.g. because it is too large, the adapter isn't
+     * authorized for its topic or it can't be decoded
+     */
+    static boolean isPoison(Throwable cause) {
+        for (Throwable throwable = cause; throwable != null; throwable = throwable.getCause()) {
+            if (throwable instanceof RetriableException) {
+                return false;
+            }
+            if (throwable instanceof ApiException || throwable instanceof SerializationException || throwable instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized List<JournalRecord> readBatch() {
+        List<JournalRecord> batch = new ArrayList<>();
+        if (buffer == null) {
+            return batch;
+        }
+        int position = (int) buffer.getLong(READ_POSITION_OFFSET);
+        int writePosition = (int) buffer.getLong(WRITE_POSITION_OFFSET);
+        while (batch.size() < journalConfig.getReplayBatchSize() && batch.size() < pendingRecords && position != writePosition) {
+            position = skipWrapMarker(position);
+            int recordSize = buffer.getInt(position) + LENGTH_SIZE;
+            byte[] topicBytes = get(position + RECORD_HEADER_SIZE, buffer.getShort(position + LENGTH_SIZE));
+            byte[] payload = get(position + RECORD_HEADER_SIZE + topicBytes.length, recordSize - RECORD_HEADER_SIZE - topicBytes.length);
+            position += recordSize;
+            batch.add(new JournalRecord(new String(topicBytes, StandardCharsets.UTF_8), payload, position));
+        }
+        return batch;
+    }
+
+    private synchronized void acknowledge(int nextReadPosition, int records) {
+        if (buffer == null) {
+            return;
+        }
+        buffer.putLong(READ_POSITION_OFFSET, nextReadPosition);
+        pendingRecords -= records;
+    }
+
+    /**
+     * @return the position the record is written at or -1 if the journal is full
+     */
+    private int findSpace(int writePosition, int readPosition, int recordSize) {
+        if (writePosition >= readPosition) {
+            if ((long) writePosition + recordSize <= buffer.capacity()) {
+                return writePosition;
+            }
+            // The write position must stay behind the read position, otherwise the journal looks empty
+            return HEADER_SIZE + recordSize < readPosition ? HEADER_SIZE : -1;
+        }
+        return writePosition + recordSize < readPosition ? writePosition : -1;
+    }
+
+    private int skipWrapMarker(int position) {
+        if (buffer.capacity() - position < LENGTH_SIZE || buffer.getInt(position) == WRAP_MARKER) {
+            return HEADER_SIZE;
+        }
+        return position;
+    }
+
+    /**
+     * Counts the records of an existing journal. A record that runs past the end of the file or over
+     * the write position means the file is damaged, the journal is cut off before it.
+     */
+    private void recover() {
+        int capacity = buffer.capacity();
+        long readPosition = buffer.getLong(READ_POSITION_OFFSET);
+        long writePosition = buffer.getLong(WRITE_POSITION_OFFSET);
+        if (readPosition < HEADER_SIZE || readPosition > capacity || writePosition < HEADER_SIZE || writePosition > capacity) {
+            log.warn("The header of the journal is damaged, starting with an empty journal");
+            buffer.putLong(READ_POSITION_OFFSET, HEADER_SIZE);
+            buffer.putLong(WRITE_POSITION_OFFSET, HEADER_SIZE);
+            return;
+        }
+        int position = (int) readPosition;
+        while (position != writePosition) {
+            int recordPosition = skipWrapMarker(position);
+            int length = buffer.getInt(recordPosition);
+            long next = (long) recordPosition + LENGTH_SIZE + length;
+            boolean passesWritePosition = recordPosition <= writePosition && next > writePosition;
+            if (length < RECORD_HEADER_SIZE - LENGTH_SIZE || next > capacity || passesWritePosition) {
+                log.warn("The journal is damaged at position {}, dropping the records behind it", recordPosition);
+                buffer.putLong(WRITE_POSITION_OFFSET, position);
+                break;
+            }
+            position = (int) next;
+            pendingRecords++;
+        }
+    }
+
+    private void put(int position, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(position + i, bytes[i]);
+        }
+    }
+
+    private byte[] get(int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return bytes;
+    }
+
+    @AllArgsConstructor
+    private static class JournalRecord {
+
+        private final String topic;
+        private final byte[] payload;
+
+        /**
+         * The position behind the record.
+         */
+        private final int nextPosition;
+    }
+}
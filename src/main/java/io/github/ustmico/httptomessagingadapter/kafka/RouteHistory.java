@@ -21,25 +21,63 @@ package io.github.ustmico.httptomessagingadapter.kafka;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Accessors(chain = true)
 @JsonDeserialize(as = RouteHistory.class)
 public class RouteHistory {
 
+    private static final int MAX_CANONICAL_NAMES = 1024;
+
+    /**
+     * Types and ids repeat in every message (topic and function names), so they share one instance.
+     */
+    private static final ConcurrentMap<String, String> CANONICAL_NAMES = new ConcurrentHashMap<>();
+
     private String type;
     private String id;
     private ZonedDateTime timestamp;
 
+    public RouteHistory(String type, String id, ZonedDateTime timestamp) {
+        this.type = canonical(type);
+        this.id = canonical(id);
+        this.timestamp = timestamp;
+    }
+
+    public RouteHistory setType(String type) {
+        this.type = canonical(type);
+        return this;
+    }
+
+    public RouteHistory setId(String id) {
+        this.id = canonical(id);
+        return this;
+    }
+
+    private static String canonical(String name) {
+        if (name == null) {
+            return null;
+        }
+        String canonicalName = CANONICAL_NAMES.get(name);
+        if (canonicalName != null) {
+            return canonicalName;
+        }
+        if (CANONICAL_NAMES.size() >= MAX_CANONICAL_NAMES) {
+            return name;
+        }
+        canonicalName = CANONICAL_NAMES.putIfAbsent(name, name);
+        return canonicalName != null ? canonicalName : name;
+    }
+
     public Optional<String> getType() {
         return Optional.ofNullable(this.type);
     }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import io.github.ustmico.httptomessagingadapter.config.RouteHistoryConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records routing steps in the route history of cloud events. The history is appended
+ * in place and kept within the configured size and sample rate.
+ */
+@Component
+public class RouteHistoryRecorder {
+
+    @Autowired
+    private RouteHistoryConfig routeHistoryConfig;
+
+    /**
+     * Creates the route history of a new cloud event. The first step is always recorded.
+     *
+     * @param type the type of the routing step ("topic" or "faas-function")
+     * @param id   the id of the routing step
+     * @param time the time of the routing step
+     * @return a mutable route history with the routing step
+     */
+    public List<RouteHistory> newRoute(String type, String id, ZonedDateTime time) {
+        List<RouteHistory> route = new ArrayList<>(Math.max(routeHistoryConfig.getMaxEntries(), 4));
+        route.add(new RouteHistory(type, id, time));
+        return route;
+    }
+
+    /**
+     * Appends a routing step to the route history of the cloud event if it is sampled.
+     *
+     * @param cloudEvent the cloud event that is updated
+     * @param type       the type of the routing step ("topic" or "faas-function")
+     * @param id         the id of the routing step
+     * @param time       the time of the routing step
+     */
+    public void append(MicoCloudEventImpl<?> cloudEvent, String type, String id, ZonedDateTime time) {
+        List<RouteHistory> route = cloudEvent.getRoute().orElse(null);
+        if (route == null || route.isEmpty()) {
+            cloudEvent.setRoute(newRoute(type, id, time));
+            return;
+        }
+        double sampleRate = routeHistoryConfig.getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (!(route instanceof ArrayList)) {
+            route = new ArrayList<>(route);
+            cloudEvent.setRoute(route);
+        }
+        int maxEntries = routeHistoryConfig.getMaxEntries();
+        if (maxEntries > 0 && route.size() >= maxEntries) {
+            if (maxEntries == 1) {
+                return;
+            }
+            // Keeps the first entry, it tells where the message came from
+            route.subList(1, route.size() - maxEntries + 2).clear();
+        }
+        route.add(new RouteHistory(type, id, time));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generates time ordered ids in the UUID format (version 7 layout) without
+ * going through the shared {@link SecureRandom} of {@link UUID#randomUUID()}.
+ * <p>
+ * An id consists of the current epoch millis, a stripe chosen by the calling thread,
+ * the node id of the adapter instance and a counter of the stripe. The stripe and its
+ * counter make ids unique within an instance, the node id makes them unique across instances.
+ * Threads are spread over several padded counters, so concurrent callers rarely contend.
+ * <p>
+ * The node id takes 48 of the 74 bits a version 7 UUID leaves besides the time, so random node ids
+ * of many instances are as unlikely to collide as random UUIDs created in the same millisecond.
+ * The counters start at random values, so instances don't count in lockstep either.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    protected static final int NODE_ID_BITS = 48;
+    private static final int STRIPES = 64;
+    private static final int STRIPE_PADDING = 8;
+    private static final int COUNTER_LOW_BITS = 14;
+    private static final int COUNTER_BITS = COUNTER_LOW_BITS + 6;
+    private static final long COUNTER_LOW_MASK = (1L << COUNTER_LOW_BITS) - 1;
+    private static final long COUNTER_HIGH_MASK = 0x3F;
+    private static final long NODE_ID_MASK = (1L << NODE_ID_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private final long nodeBits;
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+
+    /**
+     * Creates a generator with a random node id.
+     */
+    public TimeOrderedIdGenerator() {
+        this(new SecureRandom().nextLong());
+    }
+
+    /**
+     * Creates a generator with the provided node id. Only the lower 48 bits are used.
+     *
+     * @param nodeId the id of this adapter instance
+     */
+    public TimeOrderedIdGenerator(long nodeId) {
+        this.nodeBits = (nodeId & NODE_ID_MASK) << COUNTER_LOW_BITS;
+        SecureRandom random = new SecureRandom();
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            counters.set(stripe * STRIPE_PADDING, random.nextInt(1 << COUNTER_BITS));
+        }
+    }
+
+    @Override
+    public String nextId() {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        long count = counters.getAndIncrement(stripe * STRIPE_PADDING);
+        long mostSigBits = (System.currentTimeMillis() << 16) | VERSION | ((long) stripe << 6) | ((count >>> COUNTER_LOW_BITS) & COUNTER_HIGH_MASK);
+        long leastSigBits = VARIANT | nodeBits | (count & COUNTER_LOW_MASK);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.BackendConfig;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackendRouterTest {
+
+	private static BackendConfig.Target target(String name, int weight) {
+		BackendConfig.Target target = new BackendConfig.Target();
+		target.setName(name);
+		target.setUrl("http://" + name);
+		target.setWeight(weight);
+		target.setTopic(name + "-topic");
+		return target;
+	}
+
+	private static MockHttpServletRequest sticky(String session) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Session", session);
+		return request;
+	}
+
+	private static BackendRouter router(String stickyHeader, BackendConfig.Target... targets) {
+		BackendConfig backendConfig = new BackendConfig();
+		backendConfig.setUrl("http://default");
+		backendConfig.setStickyHeader(stickyHeader);
+		backendConfig.setTargets(Arrays.asList(targets));
+		KafkaConfig kafkaConfig = new KafkaConfig();
+		kafkaConfig.setOutputTopic("output");
+		BackendRouter router = new BackendRouter();
+		ReflectionTestUtils.setField(router, "backendConfig", backendConfig);
+		ReflectionTestUtils.setField(router, "kafkaConfig", kafkaConfig);
+		router.init();
+		return router;
+	}
+
+	@Test
+	public void distributesRequestsByWeight() {
+		BackendRouter router = router(null, target("a", 3), target("b", 1));
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 40_000; i++) {
+			counts.merge(router.route(new MockHttpServletRequest()).getName(), 1, Integer::sum);
+		}
+		assertTrue(Math.abs(counts.get("a") - 30_000) < 1_000);
+		assertTrue(Math.abs(counts.get("b") - 10_000) < 1_000);
+		assertEquals(Arrays.asList("a-topic", "b-topic"), router.getTopics());
+	}
+
+	@Test
+	public void pinsRequestsWithTheStickyHeader() {
+		BackendRouter router = router("Session", target("a", 1), target("b", 1), target("c", 1));
+		for (int session = 0; session < 100; session++) {
+			MockHttpServletRequest request = new MockHttpServletRequest();
+			request.addHeader("Session", "session-" + session);
+			String backend = router.route(request).getName();
+			for (int i = 0; i < 10; i++) {
+				assertEquals(backend, router.route(request).getName());
+			}
+		}
+	}
+
+	@Test
+	public void pinsKeysByWeight() {
+		BackendRouter router = router("Session", target("a", 3), target("b", 1));
+		Map<String, Integer> counts = new HashMap<>();
+		for (int session = 0; session < 40_000; session++) {
+			counts.merge(router.route(sticky("session-" + session)).getName(), 1, Integer::sum);
+		}
+		assertTrue(Math.abs(counts.get("a") - 30_000) < 1_000);
+		assertTrue(Math.abs(counts.get("b") - 10_000) < 1_000);
+	}
+
+	@Test
+	public void keepsMostKeysWhenABackendIsAdded() {
+		BackendRouter router = router("Session", target("a", 1), target("b", 1), target("c", 1));
+		BackendRouter extendedRouter = router("Session", target("a", 1), target("b", 1), target("c", 1), target("d", 1));
+		int moved = 0;
+		for (int session = 0; session < 10_000; session++) {
+			MockHttpServletRequest request = sticky("session-" + session);
+			String backend = extendedRouter.route(request).getName();
+			if (!backend.equals(router.route(request).getName())) {
+				// Only the keys of the new backend move
+				assertEquals("d", backend);
+				moved++;
+			}
+		}
+		assertTrue(Math.abs(moved - 2_500) < 300);
+	}
+
+	@Test
+	public void usesTheDefaultBackendWithoutTargets() {
+		BackendRouter.Backend backend = router(null).route(new MockHttpServletRequest());
+		assertEquals("http://default", backend.getUrlPrefix());
+		assertEquals("output", backend.getTopic());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsWeightsBelowOne() {
+		router(null, target("a", 0));
+	}
+}
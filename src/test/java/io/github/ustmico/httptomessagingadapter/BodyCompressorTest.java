@@ -0,0 +1,25 @@
+package io.github.ustmico.httptomessagingadapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BodyCompressorTest {
+
+	@Test
+	public void acceptsListedEncodings() {
+		assertTrue(BodyCompressor.isAccepted("gzip", "gzip"));
+		assertTrue(BodyCompressor.isAccepted("deflate, GZIP;q=0.5", "gzip"));
+		assertTrue(BodyCompressor.isAccepted("br, *", "gzip"));
+	}
+
+	@Test
+	public void refusesEncodingsWithQualityZero() {
+		assertFalse(BodyCompressor.isAccepted(null, "gzip"));
+		assertFalse(BodyCompressor.isAccepted("gzip;q=0", "gzip"));
+		assertFalse(BodyCompressor.isAccepted("gzip; q=0.0, *", "gzip"));
+		assertFalse(BodyCompressor.isAccepted("*;q=0", "gzip"));
+		assertFalse(BodyCompressor.isAccepted("x-gzip-like", "gzip"));
+	}
+}
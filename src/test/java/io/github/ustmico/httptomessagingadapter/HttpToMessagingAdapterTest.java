@@ -0,0 +1,94 @@
+package io.github.ustmico.httptomessagingadapter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.ustmico.httptomessagingadapter.config.JournalConfig;
+import io.github.ustmico.httptomessagingadapter.config.KafkaConfig;
+import io.github.ustmico.httptomessagingadapter.config.ScatterGatherConfig;
+import io.github.ustmico.httptomessagingadapter.config.ThreadingConfig;
+import io.github.ustmico.httptomessagingadapter.kafka.MicoCloudEventImpl;
+import io.github.ustmico.httptomessagingadapter.kafka.RouteHistoryRecorder;
+import io.github.ustmico.httptomessagingadapter.kafka.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpToMessagingAdapterTest {
+
+	private HttpToMessagingAdapter adapter;
+	private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate;
+	private OpenRequestHandler openRequestHandler;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		kafkaTemplate = mock(KafkaTemplate.class);
+		openRequestHandler = new OpenRequestHandler();
+		BackendRouter backendRouter = mock(BackendRouter.class);
+		when(backendRouter.route(any())).thenReturn(new BackendRouter.Backend("backend", "http://backend", "output"));
+		TenantRateLimiter tenantRateLimiter = mock(TenantRateLimiter.class);
+		when(tenantRateLimiter.tryAcquire(any())).thenReturn(TenantRateLimiter.Decision.ACCEPTED);
+		GracefulShutdown gracefulShutdown = mock(GracefulShutdown.class);
+		when(gracefulShutdown.tryStartRequest()).thenReturn(true);
+
+		adapter = new HttpToMessagingAdapter();
+		ReflectionTestUtils.setField(adapter, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(adapter, "kafkaConfig", new KafkaConfig());
+		ReflectionTestUtils.setField(adapter, "openRequestHandler", openRequestHandler);
+		ReflectionTestUtils.setField(adapter, "backendRouter", backendRouter);
+		ReflectionTestUtils.setField(adapter, "idGenerator", new TimeOrderedIdGenerator());
+		ReflectionTestUtils.setField(adapter, "headerFilter", mock(HeaderFilter.class));
+		ReflectionTestUtils.setField(adapter, "bodyCompressor", mock(BodyCompressor.class));
+		ReflectionTestUtils.setField(adapter, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(adapter, "scatterGatherConfig", new ScatterGatherConfig());
+		ReflectionTestUtils.setField(adapter, "routeHistoryRecorder", mock(RouteHistoryRecorder.class));
+		ReflectionTestUtils.setField(adapter, "tenantRateLimiter", tenantRateLimiter);
+		ReflectionTestUtils.setField(adapter, "gracefulShutdown", gracefulShutdown);
+		ReflectionTestUtils.setField(adapter, "journalConfig", new JournalConfig());
+		adapter.init();
+	}
+
+	@Test
+	public void removesTheOpenRequestIfItCanNotBeSent() throws Exception {
+		when(kafkaTemplate.send(anyString(), any())).thenThrow(new TimeoutException("Failed to update metadata"));
+		WebAsyncTask<?> asyncTask = adapter.getRequest(new MockHttpServletRequest("GET", "/orders"));
+		try {
+			asyncTask.getCallable().call();
+			fail("The send error is passed on");
+		} catch (TimeoutException e) {
+			assertEquals(0, openRequestHandler.size());
+		}
+	}
+
+	@Test
+	public void rejectsRequestsBeyondTheRequestExecutor() {
+		ThreadingConfig threadingConfig = new ThreadingConfig();
+		threadingConfig.setRequestPoolSize(1);
+		threadingConfig.setRequestQueueCapacity(1);
+		ReflectionTestUtils.setField(adapter, "threadingConfig", threadingConfig);
+		ReflectionTestUtils.setField(adapter, "requestExecutor", new ThreadPoolTaskExecutor());
+		adapter.init();
+		adapter.getRequest(new MockHttpServletRequest("GET", "/orders"));
+		adapter.getRequest(new MockHttpServletRequest("GET", "/orders"));
+		try {
+			adapter.getRequest(new MockHttpServletRequest("GET", "/orders"));
+			fail("The request is rejected");
+		} catch (ResponseStatusException e) {
+			assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+		}
+	}
+}
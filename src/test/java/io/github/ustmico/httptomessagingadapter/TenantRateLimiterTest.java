@@ -0,0 +1,119 @@
+package io.github.ustmico.httptomessagingadapter;
+
+import io.github.ustmico.httptomessagingadapter.config.RateLimitConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class TenantRateLimiterTest {
+
+	private static TenantRateLimiter limiter(RateLimitConfig rateLimitConfig) {
+		TenantRateLimiter limiter = new TenantRateLimiter();
+		ReflectionTestUtils.setField(limiter, "rateLimitConfig", rateLimitConfig);
+		ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+		return limiter;
+	}
+
+	private static RateLimitConfig.Tenant tenant(double rate, int burst, int weight) {
+		RateLimitConfig.Tenant tenant = new RateLimitConfig.Tenant();
+		tenant.setRate(rate);
+		tenant.setBurst(burst);
+		tenant.setWeight(weight);
+		return tenant;
+	}
+
+	@Test
+	public void getsTheTenantFromTheHeaderOrThePath() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.setTenantHeader("Tenant");
+		rateLimitConfig.setTenantPathSegment(0);
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tenant-b/orders");
+		assertEquals("tenant-b", limiter.getTenant(request));
+		request.addHeader("Tenant", "tenant-a");
+		assertEquals("tenant-a", limiter.getTenant(request));
+		assertEquals(TenantRateLimiter.DEFAULT_TENANT, limiter.getTenant(new MockHttpServletRequest("GET", "/")));
+	}
+
+	@Test
+	public void limitsTheBurstOfATenant() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.getTenants().put("tenant-a", tenant(0.001, 3, 1));
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+		}
+		assertEquals(TenantRateLimiter.Decision.RATE_LIMITED, limiter.tryAcquire("tenant-a"));
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-b"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void unconfiguredTenantsShareOneBucket() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.setRate(0.001);
+		rateLimitConfig.setBurst(2);
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("random-1"));
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("random-2"));
+		assertEquals(TenantRateLimiter.Decision.RATE_LIMITED, limiter.tryAcquire("random-3"));
+		assertEquals(1, ((Map<String, ?>) ReflectionTestUtils.getField(limiter, "buckets")).size());
+	}
+
+	@Test
+	public void sharesThePendingRequestsByWeight() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.setMaxPendingRequests(4);
+		rateLimitConfig.getTenants().put("tenant-a", tenant(0, 1, 3));
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		// tenant-b uses all the free capacity
+		for (int i = 0; i < 4; i++) {
+			assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-b"));
+		}
+		assertEquals(TenantRateLimiter.Decision.OVER_CAPACITY, limiter.tryAcquire("tenant-b"));
+		// tenant-a still gets its share of 3 of 4 once tenant-b releases its requests
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+		limiter.release("tenant-b");
+		limiter.release("tenant-b");
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+		assertEquals(TenantRateLimiter.Decision.OVER_CAPACITY, limiter.tryAcquire("tenant-a"));
+		assertEquals(TenantRateLimiter.Decision.OVER_CAPACITY, limiter.tryAcquire("tenant-b"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void randomTenantNamesShareOnePendingShare() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.setMaxPendingRequests(4);
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		int accepted = 0;
+		for (int i = 0; i < 100; i++) {
+			if (limiter.tryAcquire(UUID.randomUUID().toString()) == TenantRateLimiter.Decision.ACCEPTED) {
+				accepted++;
+			}
+		}
+		assertEquals(4, accepted);
+		assertEquals(1, ((Map<String, ?>) ReflectionTestUtils.getField(limiter, "pendingRequests")).size());
+		limiter.release(UUID.randomUUID().toString());
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire(UUID.randomUUID().toString()));
+	}
+
+	@Test
+	public void rejectedRequestsDontConsumeTokens() {
+		RateLimitConfig rateLimitConfig = new RateLimitConfig();
+		rateLimitConfig.setMaxPendingRequests(1);
+		rateLimitConfig.getTenants().put("tenant-a", tenant(0.001, 2, 1));
+		TenantRateLimiter limiter = limiter(rateLimitConfig);
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+		assertEquals(TenantRateLimiter.Decision.OVER_CAPACITY, limiter.tryAcquire("tenant-a"));
+		limiter.release("tenant-a");
+		assertEquals(TenantRateLimiter.Decision.ACCEPTED, limiter.tryAcquire("tenant-a"));
+	}
+}
@@ -0,0 +1,66 @@
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.ustmico.httptomessagingadapter.HttpRequestWrapper;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CloudEventSerializerTest {
+
+	private static final String TOPIC = "transform-result";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void jsonRoundTrip() throws Exception {
+		byte[] encoded = serialize(EnvelopeFormat.JSON);
+		String json = new String(encoded, StandardCharsets.UTF_8);
+		assertTrue(json.contains("\"base64body\":\"eyJrZXkiOiJ2YWx1ZSJ9\""));
+		assertRoundTrip(encoded);
+	}
+
+	@Test
+	public void cborRoundTripCarriesRawBody() throws Exception {
+		byte[] encoded = serialize(EnvelopeFormat.CBOR);
+		assertEquals(EnvelopeFormat.CBOR, EnvelopeFormat.detect(encoded));
+		assertTrue(encoded.length < serialize(EnvelopeFormat.JSON).length);
+		assertRoundTrip(encoded);
+	}
+
+	private byte[] serialize(EnvelopeFormat format) {
+		HttpRequestWrapper httpRequestWrapper = new HttpRequestWrapper();
+		httpRequestWrapper.setHeader(Collections.singletonMap("content-type", Collections.singletonList("application/json")));
+		httpRequestWrapper.setBody("{\"key\":\"value\"}");
+		MicoCloudEventImpl<JsonNode> cloudEvent = new MicoCloudEventImpl<JsonNode>()
+			.setRandomId()
+			.setSource(URI.create("/http-to-messaging-adapter"))
+			.setType("httpEnvelop")
+			.setTime(ZonedDateTime.now())
+			.setData(mapper.valueToTree(httpRequestWrapper));
+
+		Map<String, Object> configs = new HashMap<>();
+		configs.put(CloudEventSerializer.TOPIC_FORMATS_CONFIG, Collections.singletonMap(TOPIC, format));
+		CloudEventSerializer serializer = new CloudEventSerializer();
+		serializer.configure(configs, false);
+		return serializer.serialize(TOPIC, cloudEvent);
+	}
+
+	private void assertRoundTrip(byte[] encoded) throws Exception {
+		MicoCloudEventImpl<JsonNode> decoded = new CloudEventDeserializer().deserialize(TOPIC, encoded);
+		HttpRequestWrapper httpRequestWrapper = mapper.treeToValue(decoded.getData().get(), HttpRequestWrapper.class);
+		assertEquals("httpEnvelop", decoded.getType());
+		assertArrayEquals("{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8), httpRequestWrapper.getBodyBytes());
+		assertEquals(Collections.singletonList("application/json"), httpRequestWrapper.getHeader().get("content-type"));
+	}
+}
@@ -0,0 +1,40 @@
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FastDateTimeModuleTest {
+
+	private static final List<ZonedDateTime> TIMESTAMPS = Arrays.asList(
+		ZonedDateTime.of(2019, 10, 1, 12, 30, 45, 0, ZoneOffset.UTC),
+		ZonedDateTime.of(2019, 10, 1, 12, 30, 45, 123_000_000, ZoneOffset.UTC),
+		ZonedDateTime.of(2019, 10, 1, 12, 30, 45, 120_000_000, ZoneOffset.UTC),
+		ZonedDateTime.of(2019, 1, 2, 3, 4, 5, 1, ZoneOffset.ofHoursMinutes(-5, -30)),
+		ZonedDateTime.of(2019, 3, 31, 2, 30, 0, 999_999, ZoneId.of("Europe/Berlin")),
+		ZonedDateTime.of(12019, 10, 1, 12, 30, 45, 0, ZoneOffset.UTC),
+		ZonedDateTime.of(2019, 10, 1, 12, 30, 45, 0, ZoneOffset.ofHoursMinutesSeconds(1, 2, 3)));
+
+	@Test
+	public void formatsLikeTheIsoFormatter() {
+		for (ZonedDateTime timestamp : TIMESTAMPS) {
+			assertEquals(timestamp.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME), FastDateTimeModule.format(timestamp));
+		}
+	}
+
+	@Test
+	public void parsesLikeTheIsoFormatter() {
+		for (ZonedDateTime timestamp : TIMESTAMPS) {
+			String text = timestamp.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+			assertEquals(ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME), FastDateTimeModule.parse(text));
+		}
+		assertEquals(ZonedDateTime.parse("2019-10-01T12:30Z", DateTimeFormatter.ISO_OFFSET_DATE_TIME), FastDateTimeModule.parse("2019-10-01T12:30Z"));
+	}
+}
@@ -0,0 +1,210 @@
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.github.ustmico.httptomessagingadapter.config.JournalConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RequestJournalTest {
+
+	private File file;
+	private JournalConfig journalConfig;
+	private KafkaTemplate<String, MicoCloudEventImpl<JsonNode>> kafkaTemplate;
+	private List<String> published;
+	private Map<String, RuntimeException> failures;
+	private RequestJournal journal;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException {
+		file = File.createTempFile("request", ".journal");
+		file.delete();
+		journalConfig = new JournalConfig();
+		journalConfig.setEnabled(true);
+		journalConfig.setPath(file.getPath());
+		journalConfig.setSize(DataSize.ofKilobytes(2));
+		journalConfig.setReplayBatchSize(3);
+		journalConfig.setBypassThreshold(0);
+		published = new ArrayList<>();
+		failures = new HashMap<>();
+		kafkaTemplate = mock(KafkaTemplate.class);
+		when(kafkaTemplate.send(anyString(), any())).thenAnswer(invocation -> {
+			String data = ((MicoCloudEventImpl<JsonNode>) invocation.getArgument(1)).getData().get().asText();
+			SettableListenableFuture<Object> future = new SettableListenableFuture<>();
+			if (failures.containsKey(data)) {
+				future.setException(failures.get(data));
+			} else {
+				published.add(invocation.getArgument(0) + ":" + data);
+				future.set(null);
+			}
+			return future;
+		});
+		journal = open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		journal.close();
+		file.delete();
+	}
+
+	private RequestJournal open() throws IOException {
+		RequestJournal requestJournal = new RequestJournal();
+		ReflectionTestUtils.setField(requestJournal, "journalConfig", journalConfig);
+		ReflectionTestUtils.setField(requestJournal, "kafkaTemplate", kafkaTemplate);
+		ReflectionTestUtils.setField(requestJournal, "meterRegistry", new SimpleMeterRegistry());
+		requestJournal.init();
+		return requestJournal;
+	}
+
+	private boolean append(String data) {
+		return journal.append("topic", new MicoCloudEventImpl<JsonNode>().setRandomId().setData(TextNode.valueOf(data)));
+	}
+
+	private int fill(String prefix) {
+		int records = 0;
+		while (append(prefix + records)) {
+			records++;
+		}
+		return records;
+	}
+
+	@Test
+	public void replaysTheRecordsInOrder() {
+		for (int i = 0; i < 5; i++) {
+			assertTrue(append("request-" + i));
+		}
+		assertEquals(5, journal.getPendingRecords());
+		journal.drain();
+		assertEquals(0, journal.getPendingRecords());
+		assertEquals(5, published.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals("topic:request-" + i, published.get(i));
+		}
+	}
+
+	@Test
+	public void rejectsRecordsIfFull() {
+		int records = fill("request-");
+		assertTrue(records > 3);
+		assertEquals(records, journal.getPendingRecords());
+		journal.drain();
+		assertEquals(records, published.size());
+		assertTrue(append("after-replay"));
+	}
+
+	@Test
+	public void wrapsAroundTheEndOfTheFile() {
+		int records = fill("first-");
+		journal.drain();
+		// Doesn't fit behind the last record anymore, so it is written at the beginning of the file
+		assertTrue(append("wrapped"));
+		int secondRecords = fill("second-");
+		assertTrue(secondRecords >= records - 2);
+		journal.drain();
+		assertEquals(0, journal.getPendingRecords());
+		assertEquals(records + 1 + secondRecords, published.size());
+		assertEquals("topic:wrapped", published.get(records));
+		assertEquals("topic:second-0", published.get(records + 1));
+		assertEquals("topic:second-" + (secondRecords - 1), published.get(published.size() - 1));
+	}
+
+	@Test
+	public void keepsTheRecordsWhenReopened() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			append("request-" + i);
+		}
+		journal.close();
+		journal = open();
+		assertEquals(5, journal.getPendingRecords());
+		journal.drain();
+		assertEquals("topic:request-0", published.get(0));
+		assertEquals("topic:request-4", published.get(4));
+	}
+
+	@Test
+	public void ignoresARecordWithoutTheWritePosition() throws IOException {
+		append("request-0");
+		append("request-1");
+		journal.close();
+		// A crash before the write position was moved behind the second record
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			randomAccessFile.seek(16);
+			int firstRecordEnd = 16 + 4 + randomAccessFile.readInt();
+			randomAccessFile.seek(0);
+			randomAccessFile.writeLong(firstRecordEnd);
+		}
+		journal = open();
+		assertEquals(1, journal.getPendingRecords());
+		append("request-2");
+		journal.drain();
+		assertEquals(2, published.size());
+		assertEquals("topic:request-0", published.get(0));
+		assertEquals("topic:request-2", published.get(1));
+	}
+
+	@Test
+	public void stopsAtRetriableFailures() {
+		append("request-0");
+		append("request-1");
+		append("request-2");
+		failures.put("request-1", new NetworkException("broker unavailable"));
+		journal.drain();
+		assertEquals(2, journal.getPendingRecords());
+		failures.clear();
+		journal.drain();
+		assertEquals(0, journal.getPendingRecords());
+		// Only the failed record is published again
+		assertEquals(3, published.size());
+		assertEquals("topic:request-0", published.get(0));
+		assertEquals("topic:request-2", published.get(1));
+		assertEquals("topic:request-1", published.get(2));
+	}
+
+	@Test
+	public void skipsRecordsThatCanNeverBePublished() {
+		append("request-0");
+		append("request-1");
+		append("request-2");
+		failures.put("request-1", new RecordTooLargeException("too large"));
+		journal.drain();
+		assertEquals(0, journal.getPendingRecords());
+		assertEquals(2, published.size());
+		assertEquals("topic:request-2", published.get(1));
+	}
+
+	@Test
+	public void bypassesTheJournalBelowTheThreshold() {
+		journalConfig.setBypassThreshold(2);
+		append("request-0");
+		append("request-1");
+		assertFalse(journal.isBacklogged());
+		append("request-2");
+		assertTrue(journal.isBacklogged());
+	}
+}
@@ -0,0 +1,47 @@
+package io.github.ustmico.httptomessagingadapter.kafka;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TimeOrderedIdGeneratorTest {
+
+	@Test
+	public void idsAreUniqueAcrossThreads() throws InterruptedException {
+		TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1);
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		for (int i = 0; i < 16; i++) {
+			executor.execute(() -> {
+				for (int j = 0; j < 10_000; j++) {
+					ids.add(generator.nextId());
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		assertEquals(160_000, ids.size());
+	}
+
+	@Test
+	public void idsAreVersion7Uuids() {
+		UUID id = UUID.fromString(new TimeOrderedIdGenerator().nextId());
+		assertEquals(7, id.version());
+		assertEquals(2, id.variant());
+	}
+
+	@Test
+	public void nodeIdIsPartOfTheId() {
+		String first = new TimeOrderedIdGenerator(1).nextId();
+		String second = new TimeOrderedIdGenerator(2).nextId();
+		assertNotEquals(first.substring(19), second.substring(19));
+	}
+}